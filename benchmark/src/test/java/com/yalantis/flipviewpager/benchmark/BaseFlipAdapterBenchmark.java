@@ -0,0 +1,80 @@
+package com.yalantis.flipviewpager.benchmark;
+
+import android.app.Activity;
+import android.content.Context;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.yalantis.flipviewpager.ShadowSharedAccessibilityManager;
+import com.yalantis.flipviewpager.adapter.BaseFlipAdapter;
+import com.yalantis.flipviewpager.utils.FlipSettings;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cost of binding rows of BaseFlipAdapter, as RecyclerView does while the list scrolls.
+ *
+ * @author Yalantis
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, shadows = ShadowSharedAccessibilityManager.class)
+public class BaseFlipAdapterBenchmark {
+    private static final int ITEMS = 100;
+
+    private RecyclerView recyclerView;
+    private RecyclerView.Adapter adapter;
+
+    @Before
+    public void setUp() {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        recyclerView = new RecyclerView(activity);
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < ITEMS; i++)
+            items.add("Item " + i);
+        adapter = new ItemsAdapter(activity, items, new FlipSettings.Builder().build());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void onBindViewHolder() {
+        final RecyclerView.ViewHolder holder = adapter.createViewHolder(recyclerView, 0);
+        Benchmark.run("BaseFlipAdapter.onBindViewHolder", new Runnable() {
+            private int position;
+
+            @Override
+            public void run() {
+                position = (position + 1) % adapter.getItemCount();
+                adapter.bindViewHolder(holder, position);
+            }
+        });
+    }
+
+    private static class ItemsAdapter extends BaseFlipAdapter {
+        private final Context context;
+
+        ItemsAdapter(Context context, List items, FlipSettings settings) {
+            super(context, items, settings);
+            this.context = context;
+        }
+
+        @Override
+        public View getPage(int position, View convertView, ViewGroup parent, Object item1, Object item2, CloseListener closeListener) {
+            // Robolectric's TextView.setText() slows down with every call, so pages are plain views
+            return convertView != null ? convertView : new View(context);
+        }
+
+        @Override
+        public int getPagesCount() {
+            return 3;
+        }
+    }
+}
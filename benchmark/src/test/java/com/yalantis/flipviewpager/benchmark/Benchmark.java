@@ -0,0 +1,51 @@
+package com.yalantis.flipviewpager.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * Runs an operation many times after a warm-up and reports its average time and allocation.
+ * Times are those of the JVM with Robolectric's framework, so they're only good for comparing
+ * runs of two library versions on the same machine. Allocations don't depend on the machine.
+ *
+ * @author Yalantis
+ */
+final class Benchmark {
+    private static final int WARM_UP_RUNS = 2000;
+    private static final int RUNS = 10000;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    final String name;
+    final long nanosPerRun;
+    final long bytesPerRun;
+
+    private Benchmark(String name, long nanosPerRun, long bytesPerRun) {
+        this.name = name;
+        this.nanosPerRun = nanosPerRun;
+        this.bytesPerRun = bytesPerRun;
+    }
+
+    static Benchmark run(String name, Runnable operation) {
+        for (int i = 0; i < WARM_UP_RUNS; i++)
+            operation.run();
+
+        long thread = Thread.currentThread().getId();
+        long bytesStart = THREADS.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++)
+            operation.run();
+        long nanos = System.nanoTime() - start;
+        long bytes = THREADS.getThreadAllocatedBytes(thread) - bytesStart;
+
+        Benchmark benchmark = new Benchmark(name, nanos / RUNS, bytes / RUNS);
+        System.out.println(benchmark);
+        return benchmark;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%-40s %10.2f us/op %8d B/op", name, nanosPerRun / 1000f, bytesPerRun);
+    }
+}
@@ -0,0 +1,135 @@
+package com.yalantis.flipviewpager.benchmark;
+
+import android.app.Activity;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.FrameLayout;
+
+import com.yalantis.flipviewpager.ShadowSharedAccessibilityManager;
+import com.yalantis.flipviewpager.view.FlipViewPager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Cost of FlipViewPager binding, moving its page window and drawing flip frames.
+ *
+ * @author Yalantis
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, shadows = ShadowSharedAccessibilityManager.class)
+public class FlipViewPagerBenchmark {
+    static final int WIDTH = 480;
+    static final int HEIGHT = 240;
+    private static final int PAGES = 5;
+
+    private Activity activity;
+    private DrawingPager pager;
+    private BaseAdapter adapter;
+
+    @Before
+    public void setUp() {
+        activity = Robolectric.setupActivity(Activity.class);
+        FrameLayout parent = new FrameLayout(activity);
+        pager = new DrawingPager(activity);
+        parent.addView(pager, new FrameLayout.LayoutParams(WIDTH, HEIGHT));
+        activity.setContentView(parent);
+        adapter = new PagesAdapter();
+        pager.setAdapter(adapter, 1, 0, 2);
+        parent.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        parent.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    @Test
+    public void setAdapter() {
+        Benchmark.run("FlipViewPager.setAdapter", new Runnable() {
+            @Override
+            public void run() {
+                pager.setAdapter(adapter, 1, 0, 2);
+            }
+        });
+    }
+
+    @Test
+    public void pageWindowSwap() {
+        // Every run moves the window two pages, so two of its three pages are swapped
+        Benchmark.run("FlipViewPager page window swap", new Runnable() {
+            private boolean forward;
+
+            @Override
+            public void run() {
+                forward = !forward;
+                pager.setCurrentPage(forward ? 3 : 1);
+            }
+        });
+    }
+
+    @Test
+    public void flipFrame() {
+        final Canvas canvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+        dragToMiddleOfFlip();
+        Benchmark.run("FlipViewPager flip frame draw", new Runnable() {
+            @Override
+            public void run() {
+                pager.drawFrame(canvas);
+            }
+        });
+    }
+
+    // Leaves the pager dragged a quarter of the way to the next page, so every draw is a flip frame
+    private void dragToMiddleOfFlip() {
+        long time = SystemClock.uptimeMillis();
+        float x = WIDTH * 3 / 4;
+        float y = HEIGHT / 2;
+        pager.onTouchEvent(MotionEvent.obtain(time, time, MotionEvent.ACTION_DOWN, x, y, 0));
+        for (int i = 1; i <= 10; i++) {
+            x -= WIDTH / 40;
+            pager.onTouchEvent(MotionEvent.obtain(time, time + i * 16, MotionEvent.ACTION_MOVE, x, y, 0));
+        }
+    }
+
+    private class PagesAdapter extends BaseAdapter {
+        @Override
+        public int getCount() {
+            return PAGES;
+        }
+
+        @Override
+        public Object getItem(int position) {
+            return position;
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return position;
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            // Robolectric's TextView.setText() slows down with every call, so pages are plain views
+            return convertView != null ? convertView : new View(activity);
+        }
+    }
+
+    // Robolectric's View.draw() doesn't draw children, so frames are drawn by dispatchDraw()
+    private static class DrawingPager extends FlipViewPager {
+        DrawingPager(Context context) {
+            super(context, null);
+        }
+
+        void drawFrame(Canvas canvas) {
+            dispatchDraw(canvas);
+        }
+    }
+}
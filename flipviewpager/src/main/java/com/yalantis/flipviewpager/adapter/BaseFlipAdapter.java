@@ -1,19 +1,30 @@
 package com.yalantis.flipviewpager.adapter;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.v7.widget.RecyclerView;
+import android.view.Display;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.WindowManager;
 import android.widget.BaseAdapter;
+import android.widget.ListAdapter;
 
 import com.yalantis.flipviewpager.R;
 import com.yalantis.flipviewpager.utils.FlipSettings;
+import com.yalantis.flipviewpager.utils.ImageLoader;
+import com.yalantis.flipviewpager.view.FlipQualityController;
 import com.yalantis.flipviewpager.view.FlipViewPager;
+import com.yalantis.flipviewpager.view.PagePool;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 /**
  * @author Yalantis
@@ -21,57 +32,522 @@ import java.util.Map;
 public abstract class BaseFlipAdapter extends RecyclerView.Adapter<BaseFlipAdapter.BaseViewHolder> {
 
     /**
-     * We're saving which FlipViewPager is at which position so we can call flipToPage()
-     * on a close click.
+     * Payloads for notifyItemChanged(), tell which item of the row has changed
+     * so only pages depending on it are rebound. See getPageItems().
      */
-    protected Map<Integer, FlipViewPager> flipViewPagerMap = new HashMap<>();
+    public static final int ITEM_LEFT = 1;
+    public static final int ITEM_RIGHT = 2;
+    public static final int ITEM_BOTH = ITEM_LEFT | ITEM_RIGHT;
+
+    // Shared by all adapters for list differences and warm-up inflation, one task at a time
+    static final Executor BACKGROUND_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    /**
+     * Rows bound and not recycled yet, so rows can be flipped by position. Besides rows on
+     * screen these are rows in RecyclerView's view cache, which come back without a new bind.
+     */
+    private final List<BaseViewHolder> boundHolders = new ArrayList<>();
     private List items;
     private FlipSettings settings;
     private LayoutInflater inflater;
+    // Page views shared between all rows of this adapter
+    private final PagePool pagePool = new PagePool();
+    // Shared by all rows, null unless FlipSettings enable adaptive quality
+    private FlipQualityController qualityController;
+    private FlipViewPager.OnFlipMetricsListener metricsListener;
+    private FlipViewPager.OnFlipStateChangeListener flipStateListener;
+    final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Incremented on every submitList() so only the latest difference is applied
+    private int submitGeneration;
+    // Null unless FlipSettings enable idle prefetch
+    private IdlePrefetcher prefetcher;
+    // Flipper rows inflated by warmUp() and not used yet
+    private final List<View> warmRows = new ArrayList<>();
+    private RecyclerView recyclerView;
+    // Application the memory callbacks are registered with, null while they aren't
+    private Context memoryCallbacksContext;
+    private OnMemoryTrimListener memoryTrimListener;
+    private ImageLoader imageLoader;
+
+    public interface OnMemoryTrimListener {
+        // Views and bytes of cached images dropped on memory pressure of given ComponentCallbacks2 level
+        void onMemoryTrimmed(int level, int views, long bytes);
+    }
+
+    private final ComponentCallbacks2 memoryCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            if (level < settings.getTrimMemoryLevel()) return;
+            int views = trimMemory();
+            long bytes = imageLoader != null ? imageLoader.trimMemory(level) : 0;
+            if (memoryTrimListener != null)
+                memoryTrimListener.onMemoryTrimmed(level, views, bytes);
+        }
+
+        @Override
+        public void onLowMemory() {
+            onTrimMemory(TRIM_MEMORY_COMPLETE);
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+        }
+    };
+
+    // Memory callbacks are registered only while the RecyclerView is in a window, so the
+    // application doesn't keep the adapter and its Activity once the Activity is gone
+    private final View.OnAttachStateChangeListener windowListener = new View.OnAttachStateChangeListener() {
+        @Override
+        public void onViewAttachedToWindow(View v) {
+            registerMemoryCallbacks(v.getContext());
+        }
+
+        @Override
+        public void onViewDetachedFromWindow(View v) {
+            unregisterMemoryCallbacks();
+        }
+    };
+
+    private final RowDiff.Callback diffCallback = new RowDiff.Callback() {
+        @Override
+        public long getRowId(Object item1, Object item2) {
+            return BaseFlipAdapter.this.getRowId(item1, item2);
+        }
+
+        @Override
+        public boolean areItemsTheSame(Object oldItem, Object newItem) {
+            return BaseFlipAdapter.this.areItemsTheSame(oldItem, newItem);
+        }
+    };
+
+    // Saved pages of rows are moved along with them
+    private final RowDiff.Receiver diffReceiver = new RowDiff.Receiver() {
+        @Override
+        public void onRowsInserted(int row, int count) {
+            notifyItemRangeInserted(row, count);
+            settings.onRowsInserted(row, count);
+        }
+
+        @Override
+        public void onRowsRemoved(int row, int count) {
+            notifyItemRangeRemoved(row, count);
+            settings.onRowsRemoved(row, count);
+        }
+
+        @Override
+        public void onRowMoved(int fromRow, int toRow) {
+            notifyItemMoved(fromRow, toRow);
+            settings.onRowMoved(fromRow, toRow);
+        }
+
+        @Override
+        public void onRowsChanged(int row, int count, int changedItems) {
+            notifyItemRangeChanged(row, count, changedItems);
+        }
+    };
 
     public BaseFlipAdapter(Context context, List items, FlipSettings settings) {
         this.items = items;
         this.settings = settings;
         inflater = LayoutInflater.from(context);
+        if (settings.isIdlePrefetch())
+            prefetcher = new IdlePrefetcher(this);
+        if (settings.isAdaptiveQuality())
+            qualityController = new FlipQualityController(getFrameBudget(context));
+        // Rows keep their views, and so their flipped pages, when moved by submitList()
+        if (settings.isStableIds())
+            setHasStableIds(true);
     }
 
     @Override
     public BaseViewHolder onCreateViewHolder(ViewGroup viewGroup, int i) {
-        View v = inflater
-                .inflate(R.layout.flipper, viewGroup, false);
+        // Rows inflated ahead by warmUp() go first
+        View v = warmRows.isEmpty() ? inflater.inflate(R.layout.flipper, viewGroup, false)
+                : warmRows.remove(warmRows.size() - 1);
         BaseViewHolder baseViewHolder = new BaseViewHolder(v);
         baseViewHolder.mFlipViewPager = (FlipViewPager) v.findViewById(R.id.flip_view);
+        baseViewHolder.mFlipViewPager.setPagePool(pagePool);
+        baseViewHolder.mFlipViewPager.setSnapshotEnabled(settings.isSnapshotFlips());
+        baseViewHolder.mFlipViewPager.setFlipDuration(settings.getFlipDuration());
+        baseViewHolder.mFlipViewPager.setFlipInterpolator(settings.getFlipInterpolator());
+        baseViewHolder.mFlipViewPager.setQualityController(qualityController);
+        // Rebound to new items on every bind, so binding doesn't allocate
+        baseViewHolder.mergeAdapter = new MergeAdapter(baseViewHolder);
+        baseViewHolder.mFlipViewPager.setOnChangePageListener(baseViewHolder.mergeAdapter);
         return baseViewHolder;
     }
 
     @Override
-    public void onBindViewHolder(BaseViewHolder baseViewHolder, final int position) {
+    public void onBindViewHolder(BaseViewHolder baseViewHolder, int position) {
         // Trick to divide list into 2 parts
-        Object item1 = items.get(position * 2);
+        Object item1 = getFlipItem(position * 2);
         // Used for cases when we have not an even size in incoming list
-        Object item2 = items.size() > (position * 2 + 1) ? items.get(position * 2 + 1) : null;
+        Object item2 = getFlipItemCount() > (position * 2 + 1) ? getFlipItem(position * 2 + 1) : null;
+
+        if (!boundHolders.contains(baseViewHolder)) boundHolders.add(baseViewHolder);
+        MergeAdapter mergeAdapter = baseViewHolder.mergeAdapter;
+        mergeAdapter.bind(item1, item2);
+        baseViewHolder.mFlipViewPager.setOnFlipMetricsListener(metricsListener);
+        baseViewHolder.mFlipViewPager.setOnFlipStateChangeListener(flipStateListener);
+        // Page requested by flipRowToPage() while the row was off screen
+        int page = settings.consumeRequestedPage(position);
+        baseViewHolder.mFlipViewPager.setAdapter(mergeAdapter, page, position, getFlipItemCount());
+
+        if (prefetcher != null) {
+            if (baseViewHolder.prefetched) {
+                baseViewHolder.prefetched = false;
+                prefetcher.onPrefetchedRowUsed();
+            }
+            // Pages out of the flip window are bound when the main thread is idle
+            prefetcher.schedule(baseViewHolder.mFlipViewPager);
+        }
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        setRecyclerView(recyclerView);
+        if (prefetcher != null) prefetcher.attach(recyclerView);
+    }
 
-        // Listener to store flipped page
-        baseViewHolder.mFlipViewPager.setOnChangePageListener(new FlipViewPager.OnChangePageListener() {
+    @Override
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        if (this.recyclerView == recyclerView) setRecyclerView(null);
+        if (prefetcher != null) prefetcher.detach();
+    }
+
+    private void setRecyclerView(RecyclerView recyclerView) {
+        if (this.recyclerView != null) {
+            this.recyclerView.removeOnAttachStateChangeListener(windowListener);
+            unregisterMemoryCallbacks();
+        }
+        this.recyclerView = recyclerView;
+        if (recyclerView != null) {
+            recyclerView.addOnAttachStateChangeListener(windowListener);
+            if (recyclerView.getWindowToken() != null) registerMemoryCallbacks(recyclerView.getContext());
+        }
+    }
+
+    private void registerMemoryCallbacks(Context context) {
+        if (memoryCallbacksContext != null) return;
+        memoryCallbacksContext = context.getApplicationContext();
+        memoryCallbacksContext.registerComponentCallbacks(memoryCallbacks);
+    }
+
+    private void unregisterMemoryCallbacks() {
+        if (memoryCallbacksContext == null) return;
+        memoryCallbacksContext.unregisterComponentCallbacks(memoryCallbacks);
+        memoryCallbacksContext = null;
+    }
+
+    /**
+     * Drops views which aren't on screen: pooled page views, rows inflated ahead, rows in
+     * RecyclerView's pool and pages of bound rows out of their flip windows. They're
+     * created and bound again when needed. Called on memory pressure, see FlipSettings.
+     *
+     * @return number of dropped views, rows in RecyclerView's pool aren't counted
+     */
+    public int trimMemory() {
+        int views = pagePool.size();
+        // Pages trimmed from rows go to the page pool, so it's cleared afterwards
+        for (int i = 0; i < boundHolders.size(); i++)
+            views += boundHolders.get(i).mFlipViewPager.trimPages();
+        pagePool.clear();
+        views += warmRows.size();
+        warmRows.clear();
+        if (recyclerView != null) {
+            recyclerView.getRecycledViewPool().clear();
+            if (prefetcher != null) prefetcher.onPoolCleared();
+        }
+        return views;
+    }
+
+    public void setOnMemoryTrimListener(OnMemoryTrimListener memoryTrimListener) {
+        this.memoryTrimListener = memoryTrimListener;
+    }
+
+    @Override
+    public boolean onFailedToRecycleView(BaseViewHolder holder) {
+        // Row isn't recycled but dropped, it won't be bound again
+        boundHolders.remove(holder);
+        return super.onFailedToRecycleView(holder);
+    }
+
+    @Override
+    public void onViewRecycled(BaseViewHolder holder) {
+        boundHolders.remove(holder);
+        if (prefetcher != null) prefetcher.cancel(holder.mFlipViewPager);
+        // Images requested for pages of the row's previous items aren't needed anymore
+        if (imageLoader != null) cancelImages(holder.mFlipViewPager);
+    }
+
+    // Pages out of the flip window are detached from the row, so every page is cancelled by itself
+    private void cancelImages(FlipViewPager flipViewPager) {
+        ListAdapter pages = flipViewPager.getAdapter();
+        for (int page = 0; pages != null && page < pages.getCount(); page++) {
+            View pageView = flipViewPager.getPageView(page);
+            if (pageView != null) imageLoader.cancel(pageView);
+        }
+    }
+
+    /**
+     * Sets loader for images of pages, its requests are cancelled when rows are recycled
+     * and its cache is trimmed on memory pressure. See CachingImageLoader.
+     */
+    public void setImageLoader(ImageLoader imageLoader) {
+        this.imageLoader = imageLoader;
+    }
+
+    /**
+     * @return loader to use in getPage(), null unless set
+     */
+    public ImageLoader getImageLoader() {
+        return imageLoader;
+    }
+
+    /**
+     * Flips row to given page. Rows which aren't bound are flipped when they're bound next time.
+     *
+     * @param animate whether a row on screen flips with animation or jumps to the page
+     */
+    public void flipRowToPage(int row, int page, boolean animate) {
+        FlipViewPager flipViewPager = findBoundRow(row);
+        if (flipViewPager == null) {
+            settings.requestPage(row, page);
+        } else if (animate && isOnScreen(flipViewPager)) {
+            flipViewPager.flipToPage(page);
+        } else {
+            flipViewPager.setCurrentPage(page);
+        }
+    }
+
+    /**
+     * Flips given rows to the page together, rows on screen start animating on the same frame.
+     * Rows which aren't bound are flipped when they're bound next time.
+     */
+    public void flipRowsToPage(int[] rows, int page, boolean animate) {
+        for (int row : rows)
+            flipRowToPage(row, page, animate);
+    }
+
+    /**
+     * Flips every row to the page, e.g. to close all opened rows. Rows bound afterwards
+     * show this page until the next call.
+     */
+    public void flipAllRowsToPage(int page, boolean animate) {
+        settings.requestAllPages(page);
+        for (int i = 0; i < boundHolders.size(); i++) {
+            FlipViewPager flipViewPager = boundHolders.get(i).mFlipViewPager;
+            if (animate && isOnScreen(flipViewPager))
+                flipViewPager.flipToPage(page);
+            else
+                flipViewPager.setCurrentPage(page);
+        }
+    }
+
+    // Used by PagedFlipAdapter to keep items of bound rows loaded
+    List<BaseViewHolder> getBoundHolders() {
+        return boundHolders;
+    }
+
+    private FlipViewPager findBoundRow(int row) {
+        for (int i = 0; i < boundHolders.size(); i++) {
+            BaseViewHolder holder = boundHolders.get(i);
+            if (holder.getAdapterPosition() == row) return holder.mFlipViewPager;
+        }
+        return null;
+    }
+
+    // Cached rows aren't drawn, so they jump to the page instead of animating
+    private static boolean isOnScreen(FlipViewPager flipViewPager) {
+        return flipViewPager.getWindowToken() != null;
+    }
+
+    /**
+     * Inflates flipper rows and page views on a background thread before the list shows,
+     * so the first frames don't pay for inflation. Rows created afterwards take these views first.
+     * Page views are only warmed up when createPage() is implemented.
+     *
+     * @param parent       RecyclerView this adapter is set to
+     * @param rows         number of flipper rows to inflate
+     * @param pagesPerType number of page views to inflate for each page type of these rows,
+     *                     pages beyond PagePool capacity of the type are dropped
+     */
+    public void warmUp(final ViewGroup parent, final int rows, final int pagesPerType) {
+        // Page types depend on items, so they're taken from the first rows here on the main thread
+        final List<Integer> viewTypes = new ArrayList<>();
+        for (int row = 0; row < Math.min(rows, getItemCount()); row++) {
+            Object item1 = getFlipItem(row * 2);
+            // Items which aren't loaded yet
+            if (item1 == null) continue;
+            Object item2 = getFlipItemCount() > (row * 2 + 1) ? getFlipItem(row * 2 + 1) : null;
+            int pagesCount = item2 == null ? getPagesCount() - 1 : getPagesCount();
+            for (int position = 0; position < pagesCount; position++) {
+                Integer viewType = getPageViewType(position, item1, item2);
+                if (!viewTypes.contains(viewType)) viewTypes.add(viewType);
+            }
+        }
+
+        // LayoutInflater isn't thread safe, the background thread inflates with a copy of its own
+        final LayoutInflater backgroundInflater = inflater.cloneInContext(inflater.getContext());
+        BACKGROUND_EXECUTOR.execute(new Runnable() {
             @Override
-            public void onFlipped(int page) {
-                settings.savePageState(position, page);
+            public void run() {
+                final List<View> rowViews = new ArrayList<>(rows);
+                for (int i = 0; i < rows; i++)
+                    rowViews.add(backgroundInflater.inflate(R.layout.flipper, parent, false));
+
+                final List<View> pageViews = new ArrayList<>();
+                final List<Integer> pageTypes = new ArrayList<>();
+                for (Integer viewType : viewTypes) {
+                    for (int i = 0; i < pagesPerType; i++) {
+                        View page = createPage(viewType, parent);
+                        if (page == null) break;
+                        pageViews.add(page);
+                        pageTypes.add(viewType);
+                    }
+                }
+
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        warmRows.addAll(rowViews);
+                        for (int i = 0; i < pageViews.size(); i++)
+                            pagePool.putRecycledPage(pageTypes.get(i), pageViews.get(i));
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Inflates an empty page of given type for warmUp(), the page is later passed to getPage()
+     * as convertView. Called on a background thread, so it should only inflate, with an inflater
+     * cloned by LayoutInflater.cloneInContext() rather than the shared one of the context.
+     *
+     * @return page view or null if pages of this type aren't warmed up, the default
+     */
+    public View createPage(int viewType, ViewGroup parent) {
+        return null;
+    }
+
+    /**
+     * Replaces items with a new list. Difference between rows is calculated on a background
+     * thread, then only changed, inserted and removed rows are notified.
+     * Neither old nor new list should be modified afterwards.
+     */
+    public void submitList(final List newItems) {
+        final int generation = ++submitGeneration;
+        final List oldItems = items;
+        BACKGROUND_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final RowDiff diff = RowDiff.calculate(oldItems, newItems, diffCallback);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        // Newer list was submitted meanwhile
+                        if (generation != submitGeneration) return;
+                        items = newItems;
+                        diff.dispatchTo(diffReceiver);
+                    }
+                });
             }
         });
+    }
+
+    /**
+     * Used by submitList() to find rows which didn't change, called on a background thread.
+     */
+    protected boolean areItemsTheSame(Object oldItem, Object newItem) {
+        return oldItem.equals(newItem);
+    }
+
+    /**
+     * Stable id of the item, rows are identified by ids of their items. Used by submitList()
+     * to detect moved rows, so it's called on a background thread, and as row id when
+     * FlipSettings enable stable ids. Ids must be unique and stay the same when the item
+     * is edited. By default it's the item hash code, which is neither for most items.
+     */
+    protected long getStableItemId(Object item) {
+        return item.hashCode();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        Object item1 = getFlipItem(position * 2);
+        Object item2 = getFlipItemCount() > (position * 2 + 1) ? getFlipItem(position * 2 + 1) : null;
+        return getRowId(item1, item2);
+    }
+
+    long getRowId(Object item1, Object item2) {
+        long id1 = item1 == null ? 0 : getStableItemId(item1);
+        long id2 = item2 == null ? 0 : getStableItemId(item2);
+        // Multiplier spreads small sequential ids, so different pairs hardly collide
+        return id1 * 0x9E3779B97F4A7C15L + id2;
+    }
+
+    @Override
+    public void onBindViewHolder(BaseViewHolder baseViewHolder, int position, List<Object> payloads) {
+        int changedItems = 0;
+        for (int i = 0; i < payloads.size(); i++) {
+            Object payload = payloads.get(i);
+            if (!(payload instanceof Integer)) {
+                changedItems = 0;
+                break;
+            }
+            changedItems |= (Integer) payload;
+        }
+        if (changedItems == 0 || !rebindPages(baseViewHolder, position, changedItems))
+            onBindViewHolder(baseViewHolder, position);
+    }
+
+    /**
+     * Rebinds only pages depending on changed items, keeping current page of the row.
+     *
+     * @return false if the row needs a full bind
+     */
+    private boolean rebindPages(BaseViewHolder baseViewHolder, int position, int changedItems) {
+        FlipViewPager flipViewPager = baseViewHolder.mFlipViewPager;
+        MergeAdapter adapter = baseViewHolder.mergeAdapter;
+        if (flipViewPager.getAdapter() != adapter) return false;
+        Object item1 = getFlipItem(position * 2);
+        Object item2 = getFlipItemCount() > (position * 2 + 1) ? getFlipItem(position * 2 + 1) : null;
+        // Rows with another page count are bound from scratch
+        if ((adapter.item2 == null) != (item2 == null)) return false;
 
-        flipViewPagerMap.put(position, baseViewHolder.mFlipViewPager);
-        baseViewHolder.mFlipViewPager.setAdapter(new MergeAdapter(item1, item2, position), settings.getDefaultPage(), position, items.size());
+        adapter.item1 = item1;
+        adapter.item2 = item2;
+        for (int page = 0; page < adapter.getCount(); page++) {
+            if ((getPageItems(page) & changedItems) != 0)
+                flipViewPager.rebindPage(page);
+        }
+        return true;
     }
 
     @Override
     public int getItemCount() {
         // Checking if we need an additional row for single item
-        return items.size() % 2 != 0 ? ((items.size() / 2) + 1) : (items.size() / 2);
+        int count = getFlipItemCount();
+        return count % 2 != 0 ? ((count / 2) + 1) : (count / 2);
+    }
+
+    /**
+     * @return item at given index of the whole list, rows pair items 2 * row and 2 * row + 1
+     */
+    protected Object getFlipItem(int index) {
+        return items.get(index);
+    }
+
+    protected int getFlipItemCount() {
+        return items.size();
     }
 
     class BaseViewHolder extends RecyclerView.ViewHolder {
 
         FlipViewPager mFlipViewPager;
+        MergeAdapter mergeAdapter;
+        // Created ahead by IdlePrefetcher and not bound yet
+        boolean prefetched;
 
         public BaseViewHolder(View itemView) {
             super(itemView);
@@ -82,16 +558,88 @@ public abstract class BaseFlipAdapter extends RecyclerView.Adapter<BaseFlipAdapt
 
     public abstract int getPagesCount();
 
-    // Adapter merges 2 items together
-    private class MergeAdapter extends BaseAdapter implements CloseListener {
+    /**
+     * Items the page displays, ITEM_LEFT, ITEM_RIGHT or ITEM_BOTH. When a row is notified
+     * with one of these as payload only the pages depending on that item are rebound.
+     * By default every page depends on both items.
+     */
+    public int getPageItems(int position) {
+        return ITEM_BOTH;
+    }
+
+    /**
+     * Page type used to share page views between rows, only pages of the same type are passed
+     * to getPage() as convertView of each other. Depends on the row items, so rows showing
+     * different kinds of content can have different page layouts at the same position.
+     * By default every page position is its own type.
+     *
+     * @param item2 null for the last row of a list with odd size
+     * @return type from 0 to getPageViewTypeCount() - 1
+     */
+    public int getPageViewType(int position, Object item1, Object item2) {
+        return position;
+    }
+
+    /**
+     * Number of page types returned by getPageViewType(), getPagesCount() by default.
+     */
+    public int getPageViewTypeCount() {
+        return getPagesCount();
+    }
+
+    /**
+     * Sets flip state listener for every row of this adapter.
+     */
+    public void setOnFlipStateChangeListener(FlipViewPager.OnFlipStateChangeListener flipStateListener) {
+        this.flipStateListener = flipStateListener;
+        for (int i = 0; i < boundHolders.size(); i++)
+            boundHolders.get(i).mFlipViewPager.setOnFlipStateChangeListener(flipStateListener);
+    }
+
+    /**
+     * Sets metrics listener for every row of this adapter.
+     */
+    public void setOnFlipMetricsListener(FlipViewPager.OnFlipMetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+        for (int i = 0; i < boundHolders.size(); i++)
+            boundHolders.get(i).mFlipViewPager.setOnFlipMetricsListener(metricsListener);
+    }
+
+    /**
+     * Controller lowering flip effects of all rows when frames come late, use it to listen
+     * to quality changes. Null unless adaptive quality is enabled in FlipSettings.
+     */
+    public FlipQualityController getQualityController() {
+        return qualityController;
+    }
+
+    // Frame interval of the default display in milliseconds
+    private static long getFrameBudget(Context context) {
+        Display display = ((WindowManager) context.getSystemService(Context.WINDOW_SERVICE)).getDefaultDisplay();
+        float refreshRate = display.getRefreshRate();
+        return refreshRate > 0 ? Math.round(1000 / refreshRate) : FlipQualityController.DEFAULT_FRAME_BUDGET_MS;
+    }
+
+    /**
+     * Pool of page views shared between rows, use it to configure capacity per page type.
+     */
+    public PagePool getPagePool() {
+        return pagePool;
+    }
+
+    // Adapter merges 2 items together, one instance per row view rebound to every row it shows
+    private class MergeAdapter extends BaseAdapter implements CloseListener, FlipViewPager.OnChangePageListener {
+        private final BaseViewHolder holder;
         private Object item1;
         private Object item2;
-        private int position;
 
-        public MergeAdapter(Object item1, Object item2, int position) {
+        MergeAdapter(BaseViewHolder holder) {
+            this.holder = holder;
+        }
+
+        void bind(Object item1, Object item2) {
             this.item1 = item1;
             this.item2 = item2;
-            this.position = position;
         }
 
         @Override
@@ -109,6 +657,19 @@ public abstract class BaseFlipAdapter extends RecyclerView.Adapter<BaseFlipAdapt
             return position; // Stub
         }
 
+        @Override
+        public int getItemViewType(int position) {
+            int viewType = getPageViewType(position, item1, item2);
+            if (viewType < 0 || viewType >= getPageViewTypeCount())
+                throw new IllegalStateException("Page type must be from 0 to getPageViewTypeCount() - 1, was " + viewType);
+            return viewType;
+        }
+
+        @Override
+        public int getViewTypeCount() {
+            return getPageViewTypeCount();
+        }
+
         @Override
         public View getView(int position, View convertView, ViewGroup parent) {
             return getPage(position, convertView, parent, item1, item2, this);
@@ -116,7 +677,15 @@ public abstract class BaseFlipAdapter extends RecyclerView.Adapter<BaseFlipAdapt
 
         @Override
         public void onClickClose() {
-            flipViewPagerMap.get(position).flipToPage(1);
+            holder.mFlipViewPager.flipToPage(1);
+        }
+
+        // Stores flipped page, row position is taken at flip time as moved rows aren't rebound
+        @Override
+        public void onFlipped(int page) {
+            int position = holder.getAdapterPosition();
+            if (position != RecyclerView.NO_POSITION)
+                settings.savePageState(position, page);
         }
     }
 
@@ -0,0 +1,124 @@
+package com.yalantis.flipviewpager.adapter;
+
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.v7.widget.RecyclerView;
+
+import com.yalantis.flipviewpager.view.FlipViewPager;
+
+import java.util.ArrayList;
+
+/**
+ * Does row work of BaseFlipAdapter while the main thread is idle between frames:
+ * creates a few rows ahead into RecyclerView's pool and binds pages of bound rows
+ * which the flip hasn't reached yet. Every idle pass stops once its time budget is spent.
+ *
+ * @author Yalantis
+ */
+class IdlePrefetcher implements MessageQueue.IdleHandler {
+    // Work done per idle pass, small enough not to delay the next frame
+    private static final long IDLE_BUDGET_NANOS = 4000000;
+    // Rows kept created ahead in RecyclerView's pool
+    private static final int PREFETCH_ROWS = 2;
+    // View type of flipper rows
+    private static final int ROW_TYPE = 0;
+
+    private final BaseFlipAdapter adapter;
+    private final ArrayList<FlipViewPager> pendingRows = new ArrayList<>();
+    private RecyclerView recyclerView;
+    private int prefetchedRows;
+    // Pool dropped the last row created ahead, none are created until rows are taken from it
+    private boolean poolFull;
+    private boolean registered;
+
+    IdlePrefetcher(BaseFlipAdapter adapter) {
+        this.adapter = adapter;
+    }
+
+    void attach(RecyclerView recyclerView) {
+        this.recyclerView = recyclerView;
+        prefetchedRows = 0;
+        poolFull = false;
+        register();
+    }
+
+    void detach() {
+        recyclerView = null;
+        pendingRows.clear();
+    }
+
+    /**
+     * Binds the rest of row pages in idle time.
+     */
+    void schedule(FlipViewPager flipViewPager) {
+        if (!pendingRows.contains(flipViewPager)) pendingRows.add(flipViewPager);
+        register();
+    }
+
+    void cancel(FlipViewPager flipViewPager) {
+        pendingRows.remove(flipViewPager);
+    }
+
+    /**
+     * RecyclerView's pool was cleared, rows are created ahead again once there is other work to do.
+     */
+    void onPoolCleared() {
+        prefetchedRows = 0;
+        poolFull = false;
+    }
+
+    /**
+     * Row created ahead was taken from the pool, another one can be created.
+     */
+    void onPrefetchedRowUsed() {
+        if (prefetchedRows > 0) prefetchedRows--;
+        poolFull = false;
+        register();
+    }
+
+    private void register() {
+        if (registered || !hasWork()) return;
+        registered = true;
+        Looper.myQueue().addIdleHandler(this);
+    }
+
+    private boolean hasWork() {
+        return canPrefetchRow() || !pendingRows.isEmpty();
+    }
+
+    private boolean canPrefetchRow() {
+        return recyclerView != null && !poolFull && prefetchedRows < PREFETCH_ROWS;
+    }
+
+    @Override
+    public boolean queueIdle() {
+        long deadline = System.nanoTime() + IDLE_BUDGET_NANOS;
+        while (System.nanoTime() < deadline) {
+            if (canPrefetchRow()) {
+                prefetchRow();
+            } else if (!pendingRows.isEmpty()) {
+                if (!pendingRows.get(0).bindPendingPage()) pendingRows.remove(0);
+            } else {
+                break;
+            }
+        }
+        // Stays registered while there is work left for the next idle pass
+        registered = hasWork();
+        return registered;
+    }
+
+    private void prefetchRow() {
+        RecyclerView.RecycledViewPool pool = recyclerView.getRecycledViewPool();
+        BaseFlipAdapter.BaseViewHolder holder = adapter.createViewHolder(recyclerView, ROW_TYPE);
+        pool.putRecycledView(holder);
+        // Full pool drops the row silently, the pool hands out its last row, so that's where it is if kept
+        RecyclerView.ViewHolder last = pool.getRecycledView(ROW_TYPE);
+        if (last != null) pool.putRecycledView(last);
+        if (last == holder) {
+            holder.prefetched = true;
+            prefetchedRows++;
+        } else {
+            poolFull = true;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.yalantis.flipviewpager.adapter;
+
+import android.content.Context;
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.yalantis.flipviewpager.utils.FlipSettings;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * BaseFlipAdapter backed by a DataSource instead of an in-memory list. Items are loaded
+ * in chunks on a background thread as rows are bound, rows of chunks being loaded show
+ * a placeholder, and chunks far from the bound rows are dropped to cap memory. Chunks of
+ * bound rows, including rows in RecyclerView's view cache, are never dropped.
+ * Chunk size is even, so both items of a row always come from the same chunk.
+ * Rows whose items are missing from a loaded chunk stay placeholders.
+ *
+ * @author Yalantis
+ */
+public abstract class PagedFlipAdapter extends BaseFlipAdapter {
+    private static final int TYPE_ROW = 0;
+    private static final int TYPE_PLACEHOLDER = 1;
+    // Two chunks under bound rows and one loaded ahead, fewer would drop chunks loaded ahead
+    private static final int MIN_CHUNKS = 3;
+    // Shared by paged adapters without an executor of their own, so loads don't wait for list differences
+    private static final Executor LOAD_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    public interface DataSource {
+        // Total number of items, called on the main thread
+        int getCount();
+
+        // Items from start to start + count, called on a background thread. Null or fewer items
+        // leave rows of the missing ones as placeholders, exceptions are passed to OnLoadErrorListener
+        List loadRange(int start, int count);
+    }
+
+    public interface OnLoadErrorListener {
+        // Called on the main thread, rows of the chunk stay placeholders and load it again when rebound
+        void onLoadError(int start, int count, RuntimeException error);
+    }
+
+    private final DataSource dataSource;
+    private final Executor loadExecutor;
+    private final int chunkSize;
+    private final int maxChunks;
+    private final SparseArray<List> chunks = new SparseArray<>();
+    private final SparseBooleanArray loadingChunks = new SparseBooleanArray();
+    // Placeholder rows bound and not recycled yet, flipper rows are tracked by BaseFlipAdapter
+    private final List<BaseViewHolder> boundPlaceholders = new ArrayList<>();
+    // Chunks of bound rows, reused by every trim
+    private final SparseBooleanArray usedChunks = new SparseBooleanArray();
+    // Incremented by notifyDataSourceChanged(), so loads of stale data are ignored
+    private int generation;
+    private OnLoadErrorListener loadErrorListener;
+
+    /**
+     * @param chunkSize items loaded at once, must be even
+     * @param maxChunks chunks kept in memory, at least 3: bound rows may span two chunks and
+     *                  the neighbour one is loaded ahead. Exceeded while bound rows span more.
+     */
+    public PagedFlipAdapter(Context context, DataSource dataSource, FlipSettings settings, int chunkSize, int maxChunks) {
+        this(context, dataSource, settings, chunkSize, maxChunks, LOAD_EXECUTOR);
+    }
+
+    /**
+     * @param loadExecutor runs DataSource.loadRange(), chunks of this adapter may load concurrently
+     */
+    public PagedFlipAdapter(Context context, DataSource dataSource, FlipSettings settings, int chunkSize, int maxChunks,
+                            Executor loadExecutor) {
+        super(context, Collections.emptyList(), settings);
+        if (chunkSize <= 0 || chunkSize % 2 != 0)
+            throw new IllegalArgumentException("Chunk size must be positive and even, was " + chunkSize);
+        if (maxChunks < MIN_CHUNKS)
+            throw new IllegalArgumentException("At least " + MIN_CHUNKS + " chunks must be kept, was " + maxChunks);
+        this.dataSource = dataSource;
+        this.chunkSize = chunkSize;
+        this.maxChunks = maxChunks;
+        this.loadExecutor = loadExecutor;
+    }
+
+    /**
+     * View shown for rows whose items are being loaded.
+     */
+    public abstract View createPlaceholder(ViewGroup parent);
+
+    public void setOnLoadErrorListener(OnLoadErrorListener loadErrorListener) {
+        this.loadErrorListener = loadErrorListener;
+    }
+
+    /**
+     * Drops loaded items and loads them again for bound rows, call it when the data source
+     * content or size has changed. Loads started before are ignored.
+     */
+    public void notifyDataSourceChanged() {
+        generation++;
+        chunks.clear();
+        loadingChunks.clear();
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Items always come from the DataSource, so the list is ignored and the adapter is
+     * refreshed as by notifyDataSourceChanged().
+     */
+    @Override
+    public void submitList(List newItems) {
+        notifyDataSourceChanged();
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        int index = position * 2;
+        // Second item is missing only in the last row of a list with odd size
+        boolean loaded = getFlipItem(index) != null && (index + 1 >= getFlipItemCount() || getFlipItem(index + 1) != null);
+        return loaded ? TYPE_ROW : TYPE_PLACEHOLDER;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        // Placeholder rows get an id once their items are loaded
+        return getItemViewType(position) == TYPE_ROW ? super.getItemId(position) : RecyclerView.NO_ID;
+    }
+
+    @Override
+    public BaseViewHolder onCreateViewHolder(ViewGroup viewGroup, int viewType) {
+        if (viewType == TYPE_PLACEHOLDER)
+            return new BaseViewHolder(createPlaceholder(viewGroup));
+        return super.onCreateViewHolder(viewGroup, viewType);
+    }
+
+    @Override
+    public void onBindViewHolder(BaseViewHolder baseViewHolder, int position) {
+        int index = position * 2;
+        int chunk = chunkOf(index);
+        requestChunk(chunk);
+        // Loading neighbour chunk ahead when the row is close to its edge
+        int offset = index - chunk * chunkSize;
+        if (offset >= chunkSize - chunkSize / 4)
+            requestChunk(chunk + 1);
+        else if (offset < chunkSize / 4)
+            requestChunk(chunk - 1);
+
+        if (!isPlaceholder(baseViewHolder))
+            super.onBindViewHolder(baseViewHolder, position);
+        else if (!boundPlaceholders.contains(baseViewHolder))
+            boundPlaceholders.add(baseViewHolder);
+    }
+
+    @Override
+    public void onBindViewHolder(BaseViewHolder baseViewHolder, int position, List<Object> payloads) {
+        if (isPlaceholder(baseViewHolder))
+            onBindViewHolder(baseViewHolder, position);
+        else
+            super.onBindViewHolder(baseViewHolder, position, payloads);
+    }
+
+    @Override
+    public boolean onFailedToRecycleView(BaseViewHolder holder) {
+        boundPlaceholders.remove(holder);
+        return super.onFailedToRecycleView(holder);
+    }
+
+    @Override
+    public void onViewRecycled(BaseViewHolder holder) {
+        if (isPlaceholder(holder))
+            boundPlaceholders.remove(holder);
+        else
+            super.onViewRecycled(holder);
+    }
+
+    @Override
+    protected Object getFlipItem(int index) {
+        List chunk = chunks.get(chunkOf(index));
+        int offset = index % chunkSize;
+        return chunk != null && offset < chunk.size() ? chunk.get(offset) : null;
+    }
+
+    @Override
+    protected int getFlipItemCount() {
+        return dataSource.getCount();
+    }
+
+    private boolean isPlaceholder(BaseViewHolder holder) {
+        return holder.mFlipViewPager == null;
+    }
+
+    private int chunkOf(int index) {
+        return index / chunkSize;
+    }
+
+    private void requestChunk(final int chunk) {
+        final int start = chunk * chunkSize;
+        if (chunk < 0 || start >= getFlipItemCount()) return;
+        if (chunks.get(chunk) != null || loadingChunks.get(chunk)) return;
+
+        final int requestGeneration = generation;
+        final int count = Math.min(chunkSize, getFlipItemCount() - start);
+        loadingChunks.put(chunk, true);
+        loadExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                List loaded = null;
+                RuntimeException loadError = null;
+                try {
+                    loaded = dataSource.loadRange(start, count);
+                } catch (RuntimeException e) {
+                    loadError = e;
+                }
+                final List items = loaded != null ? loaded : Collections.emptyList();
+                final RuntimeException error = loadError;
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (requestGeneration != generation) return;
+                        // Failed chunk isn't kept, so the next bind of its rows loads it again
+                        loadingChunks.delete(chunk);
+                        if (error != null) {
+                            if (loadErrorListener != null)
+                                loadErrorListener.onLoadError(start, count, error);
+                            return;
+                        }
+                        chunks.put(chunk, items);
+                        trimChunks(chunk);
+                        // Rows switch from placeholders to flipper rows
+                        notifyItemRangeChanged(start / 2, (Math.min(items.size(), count) + 1) / 2);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Drops chunks which aren't used by bound rows, farthest from the used ones first,
+     * until at most maxChunks are left. Rows of dropped chunks turn into placeholders.
+     */
+    private void trimChunks(int loadedChunk) {
+        if (chunks.size() <= maxChunks) return;
+        usedChunks.clear();
+        usedChunks.put(loadedChunk, true);
+        List<BaseViewHolder> boundHolders = getBoundHolders();
+        for (int i = 0; i < boundHolders.size(); i++)
+            markUsed(boundHolders.get(i));
+        for (int i = 0; i < boundPlaceholders.size(); i++)
+            markUsed(boundPlaceholders.get(i));
+        // Keys are sorted
+        int firstUsed = usedChunks.keyAt(0);
+        int lastUsed = usedChunks.keyAt(usedChunks.size() - 1);
+
+        while (chunks.size() > maxChunks) {
+            int farthest = -1;
+            int farthestDistance = -1;
+            for (int i = 0; i < chunks.size(); i++) {
+                int chunk = chunks.keyAt(i);
+                if (usedChunks.get(chunk)) continue;
+                int distance = Math.max(firstUsed - chunk, chunk - lastUsed);
+                if (distance > farthestDistance) {
+                    farthest = i;
+                    farthestDistance = distance;
+                }
+            }
+            // Every chunk is used by bound rows
+            if (farthest < 0) return;
+            int start = chunks.keyAt(farthest) * chunkSize;
+            int size = Math.min(chunks.valueAt(farthest).size(), chunkSize);
+            chunks.removeAt(farthest);
+            // Rows switch from flipper rows to placeholders
+            notifyItemRangeChanged(start / 2, (size + 1) / 2);
+        }
+    }
+
+    private void markUsed(BaseViewHolder holder) {
+        int position = holder.getAdapterPosition();
+        if (position == RecyclerView.NO_POSITION)
+            position = holder.getLayoutPosition();
+        if (position != RecyclerView.NO_POSITION)
+            usedChunks.put(chunkOf(position * 2), true);
+    }
+}
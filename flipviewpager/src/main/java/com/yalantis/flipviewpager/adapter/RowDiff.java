@@ -0,0 +1,271 @@
+package com.yalantis.flipviewpager.adapter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Row level difference between two item lists of BaseFlipAdapter, where every row
+ * pairs items 2 * row and 2 * row + 1. Rows equal at the start and at the end of both lists
+ * are kept. Rows in between are matched by row id: matched rows are moved, rows only in
+ * the new list are inserted or replace rows only in the old list, the rest are removed.
+ *
+ * @author Yalantis
+ */
+class RowDiff {
+    private static final int INSERT = 0;
+    private static final int REMOVE = 1;
+    private static final int MOVE = 2;
+    private static final int CHANGE = 3;
+
+    // Operations in dispatch order: type, position, count (target position of a move), changed items
+    private final List<int[]> operations = new ArrayList<>();
+
+    /**
+     * Identifies and compares items of the lists, implemented by BaseFlipAdapter.
+     */
+    interface Callback {
+        // Id of the row pairing given items, item2 is null for the odd last row
+        long getRowId(Object item1, Object item2);
+
+        boolean areItemsTheSame(Object oldItem, Object newItem);
+    }
+
+    /**
+     * Receives row operations turning the old list into the new one, in the order they apply.
+     */
+    interface Receiver {
+        void onRowsInserted(int row, int count);
+
+        void onRowsRemoved(int row, int count);
+
+        void onRowMoved(int fromRow, int toRow);
+
+        // changedItems holds BaseFlipAdapter.ITEM_LEFT and ITEM_RIGHT flags of the changed items
+        void onRowsChanged(int row, int count, int changedItems);
+    }
+
+    /**
+     * Can be called from any thread, lists must not be modified meanwhile.
+     */
+    static RowDiff calculate(List oldItems, List newItems, Callback callback) {
+        int oldRows = rowCount(oldItems);
+        int newRows = rowCount(newItems);
+        int minRows = Math.min(oldRows, newRows);
+
+        int prefix = 0;
+        while (prefix < minRows && changedItems(oldItems, prefix, newItems, prefix, callback) == 0)
+            prefix++;
+
+        int suffix = 0;
+        while (suffix < minRows - prefix
+                && changedItems(oldItems, oldRows - 1 - suffix, newItems, newRows - 1 - suffix, callback) == 0)
+            suffix++;
+
+        RowDiff diff = new RowDiff();
+        int oldMiddle = oldRows - prefix - suffix;
+        int newMiddle = newRows - prefix - suffix;
+
+        // Old rows not placed yet keep their order and follow the placed ones, so the first
+        // of them is the row at the current position. Rows with the same id are chained,
+        // so a row to move is found without scanning the list.
+        long[] oldIds = new long[oldMiddle];
+        int[] nextWithId = new int[oldMiddle];
+        Map<Long, Integer> firstWithId = new HashMap<>();
+        for (int i = oldMiddle - 1; i >= 0; i--) {
+            oldIds[i] = rowId(oldItems, prefix + i, callback);
+            Integer next = firstWithId.put(oldIds[i], i);
+            nextWithId[i] = next == null ? -1 : next;
+        }
+        RemainingRows remaining = new RemainingRows(oldMiddle);
+
+        // Ids of new rows not reached yet, with number of occurrences
+        Map<Long, Integer> pendingIds = new HashMap<>();
+        long[] newIds = new long[newMiddle];
+        for (int i = 0; i < newMiddle; i++) {
+            newIds[i] = rowId(newItems, prefix + i, callback);
+            Integer count = pendingIds.get(newIds[i]);
+            pendingIds.put(newIds[i], count == null ? 1 : count + 1);
+        }
+
+        for (int i = 0; i < newMiddle; i++) {
+            long id = newIds[i];
+            int count = pendingIds.get(id);
+            if (count == 1) pendingIds.remove(id);
+            else pendingIds.put(id, count - 1);
+
+            while (true) {
+                int current = remaining.first();
+                if (current >= 0 && oldIds[current] == id) {
+                    diff.change(oldItems, prefix + current, newItems, prefix + i, callback);
+                    remaining.place(current);
+                    break;
+                }
+                int found = current >= 0 ? firstRemaining(firstWithId, nextWithId, remaining, id) : -1;
+                // Row at this position isn't in the rest of the new list
+                boolean orphan = current >= 0 && !pendingIds.containsKey(oldIds[current]);
+                if (found >= 0 && orphan) {
+                    diff.add(REMOVE, prefix + i, 1, 0);
+                    remaining.place(current);
+                } else if (found >= 0) {
+                    diff.add(MOVE, prefix + i + remaining.countBefore(found), prefix + i, 0);
+                    remaining.place(found);
+                    diff.change(oldItems, prefix + found, newItems, prefix + i, callback);
+                    break;
+                } else if (orphan) {
+                    // Replaced in place, so the row is rebound instead of recreated
+                    diff.change(oldItems, prefix + current, newItems, prefix + i, callback);
+                    remaining.place(current);
+                    break;
+                } else {
+                    diff.add(INSERT, prefix + i, 1, 0);
+                    break;
+                }
+            }
+        }
+        if (remaining.size() > 0)
+            diff.add(REMOVE, prefix + newMiddle, remaining.size(), 0);
+        return diff;
+    }
+
+    /**
+     * @return first old row with given id which isn't placed yet, or -1
+     */
+    private static int firstRemaining(Map<Long, Integer> firstWithId, int[] nextWithId, RemainingRows remaining, long id) {
+        Integer first = firstWithId.get(id);
+        int row = first == null ? -1 : first;
+        while (row >= 0 && remaining.isPlaced(row))
+            row = nextWithId[row];
+        // Chain starts past placed rows from now on, so they are walked only once
+        if (first != null && row != first) {
+            if (row >= 0) firstWithId.put(id, row);
+            else firstWithId.remove(id);
+        }
+        return row;
+    }
+
+    void dispatchTo(Receiver receiver) {
+        for (int i = 0; i < operations.size(); i++) {
+            int[] operation = operations.get(i);
+            switch (operation[0]) {
+                case INSERT:
+                    receiver.onRowsInserted(operation[1], operation[2]);
+                    break;
+                case REMOVE:
+                    receiver.onRowsRemoved(operation[1], operation[2]);
+                    break;
+                case MOVE:
+                    receiver.onRowMoved(operation[1], operation[2]);
+                    break;
+                case CHANGE:
+                    receiver.onRowsChanged(operation[1], operation[2], operation[3]);
+                    break;
+            }
+        }
+    }
+
+    static int rowCount(List items) {
+        return (items.size() + 1) / 2;
+    }
+
+    private void change(List oldItems, int oldRow, List newItems, int newRow, Callback callback) {
+        int changedItems = changedItems(oldItems, oldRow, newItems, newRow, callback);
+        if (changedItems != 0)
+            add(CHANGE, newRow, 1, changedItems);
+    }
+
+    // Neighbour operations of the same type are merged into ranges
+    private void add(int type, int position, int count, int changedItems) {
+        if (type != MOVE && !operations.isEmpty()) {
+            int[] last = operations.get(operations.size() - 1);
+            int end = type == REMOVE ? last[1] : last[1] + last[2];
+            if (last[0] == type && last[3] == changedItems && end == position) {
+                last[2] += count;
+                return;
+            }
+        }
+        operations.add(new int[]{type, position, count, changedItems});
+    }
+
+    private static long rowId(List items, int row, Callback callback) {
+        return callback.getRowId(item(items, row * 2), item(items, row * 2 + 1));
+    }
+
+    /**
+     * @return BaseFlipAdapter.ITEM_LEFT and ITEM_RIGHT flags of the items which differ
+     */
+    private static int changedItems(List oldItems, int oldRow, List newItems, int newRow, Callback callback) {
+        int changedItems = 0;
+        if (!sameItem(item(oldItems, oldRow * 2), item(newItems, newRow * 2), callback))
+            changedItems |= BaseFlipAdapter.ITEM_LEFT;
+        if (!sameItem(item(oldItems, oldRow * 2 + 1), item(newItems, newRow * 2 + 1), callback))
+            changedItems |= BaseFlipAdapter.ITEM_RIGHT;
+        return changedItems;
+    }
+
+    private static boolean sameItem(Object oldItem, Object newItem, Callback callback) {
+        if (oldItem == null || newItem == null) return oldItem == newItem;
+        return callback.areItemsTheSame(oldItem, newItem);
+    }
+
+    private static Object item(List items, int index) {
+        return index < items.size() ? items.get(index) : null;
+    }
+
+    /**
+     * Old rows which aren't placed at their new position yet. Counts are kept in a Fenwick tree,
+     * so the current position of a row is known in log time.
+     */
+    private static class RemainingRows {
+        private final boolean[] placed;
+        private final int[] tree;
+        private int size;
+        private int first;
+
+        RemainingRows(int rows) {
+            placed = new boolean[rows];
+            tree = new int[rows + 1];
+            size = rows;
+            for (int i = 1; i <= rows; i++) {
+                tree[i]++;
+                int parent = i + (i & -i);
+                if (parent <= rows) tree[parent] += tree[i];
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isPlaced(int row) {
+            return placed[row];
+        }
+
+        /**
+         * @return first row which isn't placed yet, or -1
+         */
+        int first() {
+            while (first < placed.length && placed[first])
+                first++;
+            return first < placed.length ? first : -1;
+        }
+
+        void place(int row) {
+            placed[row] = true;
+            size--;
+            for (int i = row + 1; i < tree.length; i += i & -i)
+                tree[i]--;
+        }
+
+        /**
+         * @return number of rows before given one which aren't placed yet
+         */
+        int countBefore(int row) {
+            int count = 0;
+            for (int i = row; i > 0; i -= i & -i)
+                count += tree[i];
+            return count;
+        }
+    }
+}
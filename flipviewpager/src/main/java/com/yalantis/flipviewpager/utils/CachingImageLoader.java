@@ -0,0 +1,314 @@
+package com.yalantis.flipviewpager.utils;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.DisplayMetrics;
+import android.util.LruCache;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * ImageLoader decoding on background threads with a sample size fitting the target size.
+ * Decoded images are kept in memory, bounded by bytes and least recently used dropped first,
+ * and optionally in the cache dir, so they aren't decoded from full size again on the next start.
+ * Works with local images only, no network is needed.
+ *
+ * @author Yalantis
+ */
+public class CachingImageLoader implements ImageLoader {
+    private static final String DISK_CACHE_DIR = "flipviewpager-images";
+    private static final int DISK_CACHE_JPEG_QUALITY = 90;
+    // Files are written under this suffix and renamed when complete
+    private static final String TEMP_SUFFIX = ".tmp";
+    // Writes of the same key are serialized by one of these, picked by the key hash
+    private static final int DISK_LOCKS = 16;
+    // Shared by all loaders, images are decoded two at a time
+    private static final ExecutorService DECODE_EXECUTOR = Executors.newFixedThreadPool(2);
+
+    private final Resources resources;
+    private final LruCache<String, Bitmap> memoryCache;
+    // Null when there is no disk cache
+    private final File diskCacheDir;
+    private final long maxDiskBytes;
+    private final Object[] diskLocks = new Object[DISK_LOCKS];
+    // Bytes of files in the cache dir, -1 until it's listed on the first write
+    private long diskBytes = -1;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Pending request of every image view
+    private final Map<ImageView, Request> requests = new WeakHashMap<>();
+
+    /**
+     * Loader keeping decoded images in memory only, up to 1/8 of the heap.
+     */
+    public CachingImageLoader(Context context) {
+        this(context, Runtime.getRuntime().maxMemory() / 8, 0);
+    }
+
+    /**
+     * @param maxMemoryBytes bytes of decoded images kept in memory
+     * @param maxDiskBytes   bytes of decoded images kept in the cache dir, 0 for no disk cache
+     */
+    public CachingImageLoader(Context context, long maxMemoryBytes, long maxDiskBytes) {
+        resources = context.getResources();
+        memoryCache = new LruCache<String, Bitmap>((int) Math.min(maxMemoryBytes, Integer.MAX_VALUE)) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+        };
+        this.maxDiskBytes = maxDiskBytes;
+        diskCacheDir = maxDiskBytes > 0 ? new File(context.getCacheDir(), DISK_CACHE_DIR) : null;
+        for (int i = 0; i < DISK_LOCKS; i++)
+            diskLocks[i] = new Object();
+    }
+
+    @Override
+    public void loadResource(ImageView imageView, final int resId, int targetWidth, int targetHeight) {
+        load(imageView, "res-" + resId, targetWidth, targetHeight, new Source() {
+            @Override
+            Bitmap decode(BitmapFactory.Options options) {
+                return BitmapFactory.decodeResource(resources, resId, options);
+            }
+        });
+    }
+
+    @Override
+    public void loadFile(ImageView imageView, final File file, int targetWidth, int targetHeight) {
+        // Modification time in the key, so a changed file isn't taken from the caches
+        load(imageView, "file-" + file.getAbsolutePath() + "-" + file.lastModified(), targetWidth, targetHeight, new Source() {
+            @Override
+            Bitmap decode(BitmapFactory.Options options) {
+                return BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+            }
+        });
+    }
+
+    @Override
+    public void cancel(View root) {
+        if (requests.isEmpty()) return;
+        // Requests are looked up by the image views of the root, so only its own views are visited
+        if (root instanceof ImageView) {
+            Request request = requests.remove(root);
+            if (request != null) request.future.cancel(false);
+        } else if (root instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) root;
+            for (int i = 0; i < group.getChildCount(); i++)
+                cancel(group.getChildAt(i));
+        }
+    }
+
+    @Override
+    public long trimMemory(int level) {
+        long size = memoryCache.size();
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL)
+            memoryCache.evictAll();
+        else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW)
+            memoryCache.trimToSize(memoryCache.maxSize() / 2);
+        return size - memoryCache.size();
+    }
+
+    private void load(final ImageView imageView, String source, int targetWidth, int targetHeight, final Source decoder) {
+        DisplayMetrics metrics = resources.getDisplayMetrics();
+        final int width = targetWidth > 0 ? targetWidth : metrics.widthPixels / 2;
+        final int height = targetHeight > 0 ? targetHeight : metrics.heightPixels;
+        final String key = source + "-" + width + "x" + height;
+
+        Request previous = requests.remove(imageView);
+        if (previous != null) {
+            if (previous.key.equals(key)) {
+                requests.put(imageView, previous);
+                return;
+            }
+            previous.future.cancel(false);
+        }
+        Bitmap bitmap = memoryCache.get(key);
+        if (bitmap != null) {
+            imageView.setImageBitmap(bitmap);
+            return;
+        }
+        // Rebound view mustn't show its previous image meanwhile
+        imageView.setImageDrawable(null);
+
+        final Request request = new Request(key);
+        requests.put(imageView, request);
+        request.future = DECODE_EXECUTOR.submit(new Runnable() {
+            @Override
+            public void run() {
+                Bitmap bitmap = readDiskCache(key);
+                if (bitmap == null) {
+                    bitmap = decode(decoder, width, height);
+                    if (bitmap != null) writeDiskCache(key, bitmap);
+                }
+                if (bitmap == null) return;
+                final Bitmap decoded = bitmap;
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        memoryCache.put(key, decoded);
+                        if (requests.get(imageView) != request) return;
+                        requests.remove(imageView);
+                        imageView.setImageBitmap(decoded);
+                    }
+                });
+            }
+        });
+    }
+
+    private static Bitmap decode(Source source, int width, int height) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        source.decode(options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) return null;
+        // Largest power of 2 keeping the image at least as big as the target
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= width && options.outHeight / (sampleSize * 2) >= height)
+            sampleSize *= 2;
+        options.inSampleSize = sampleSize;
+        options.inJustDecodeBounds = false;
+        return source.decode(options);
+    }
+
+    private Bitmap readDiskCache(String key) {
+        if (diskCacheDir == null) return null;
+        // Files appear by rename once complete, so a partly written one is never read
+        File file = new File(diskCacheDir, fileName(key));
+        if (!file.exists()) return null;
+        // Recently read files are removed last
+        file.setLastModified(System.currentTimeMillis());
+        return BitmapFactory.decodeFile(file.getAbsolutePath(), null);
+    }
+
+    private void writeDiskCache(String key, Bitmap bitmap) {
+        if (diskCacheDir == null) return;
+        String name = fileName(key);
+        File file = new File(diskCacheDir, name);
+        long written;
+        synchronized (diskLocks[(name.hashCode() & Integer.MAX_VALUE) % DISK_LOCKS]) {
+            if (!diskCacheDir.isDirectory() && !diskCacheDir.mkdirs()) return;
+            File temp = new File(diskCacheDir, name + TEMP_SUFFIX);
+            OutputStream out = null;
+            boolean complete;
+            try {
+                out = new FileOutputStream(temp);
+                // Lossless PNG only for images with transparency, JPEG is smaller and decodes faster
+                if (bitmap.hasAlpha())
+                    complete = bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+                else
+                    complete = bitmap.compress(Bitmap.CompressFormat.JPEG, DISK_CACHE_JPEG_QUALITY, out);
+            } catch (IOException e) {
+                complete = false;
+            } finally {
+                if (out != null) {
+                    try {
+                        out.close();
+                    } catch (IOException e) {
+                        complete = false;
+                    }
+                }
+            }
+            long replaced = file.length();
+            if (!complete || !temp.renameTo(file)) {
+                temp.delete();
+                return;
+            }
+            written = file.length() - replaced;
+        }
+        synchronized (diskCacheDir) {
+            if (diskBytes < 0)
+                diskBytes = directorySize();
+            else
+                diskBytes += written;
+            if (diskBytes > maxDiskBytes) trimDiskCache();
+        }
+    }
+
+    private long directorySize() {
+        File[] files = diskCacheDir.listFiles();
+        if (files == null) return 0;
+        long size = 0;
+        for (File file : files) {
+            if (!isTemp(file)) size += file.length();
+        }
+        return size;
+    }
+
+    // Removes least recently used files until the cache is back under its size
+    private void trimDiskCache() {
+        File[] files = diskCacheDir.listFiles();
+        if (files == null) return;
+        // Modification times are read once, as they're file system calls
+        final long[] modified = new long[files.length];
+        Integer[] order = new Integer[files.length];
+        long size = 0;
+        for (int i = 0; i < files.length; i++) {
+            modified[i] = files[i].lastModified();
+            order[i] = i;
+            if (!isTemp(files[i])) size += files[i].length();
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return modified[a] < modified[b] ? -1 : modified[a] == modified[b] ? 0 : 1;
+            }
+        });
+        for (int i = 0; i < order.length && size > maxDiskBytes; i++) {
+            File eldest = files[order[i]];
+            if (isTemp(eldest)) continue;
+            long length = eldest.length();
+            if (eldest.delete()) size -= length;
+        }
+        diskBytes = size;
+    }
+
+    private static boolean isTemp(File file) {
+        return file.getName().endsWith(TEMP_SUFFIX);
+    }
+
+    private static String fileName(String key) {
+        // Keys hold file paths, so they are hashed into valid names
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes("UTF-8"));
+            // No extension, the file is JPEG or PNG and BitmapFactory tells them apart
+            StringBuilder name = new StringBuilder(digest.length * 2);
+            for (byte b : digest)
+                name.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            return name.toString();
+        } catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private abstract static class Source {
+        abstract Bitmap decode(BitmapFactory.Options options);
+    }
+
+    private static class Request {
+        final String key;
+        Future<?> future;
+
+        Request(String key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.yalantis.flipviewpager.utils;
+
+/**
+ * Flip maths without any View dependency: transform of the flipping half and alpha of the
+ * shade/shine drawn over it for given flip progress. Results are cached per page size and
+ * angle quantized to 1 / STEPS_PER_DEGREE of a degree, so drawing a frame is a lookup.
+ *
+ * @author Yalantis
+ */
+public class FlipGeometry {
+    public static final int STEPS_PER_DEGREE = 2;
+
+    // Camera distance used by android.graphics.Camera: 8 inches at 72 dpi
+    private static final float CAMERA_DISTANCE = 8 * 72;
+    // Page is scaled down before projection and back up after it to soften perspective
+    private static final float PERSPECTIVE_SCALE = 4;
+    private static final int STEPS = 180 * STEPS_PER_DEGREE;
+
+    private final int maxShadeAlpha;
+    private final float[][] matrices = new float[STEPS + 1][];
+    private final int[] alphas = new int[STEPS + 1];
+    private int width = -1;
+    private int height = -1;
+
+    /**
+     * @param maxShadeAlpha alpha of shade or shine when the flipping half stands upright
+     */
+    public FlipGeometry(int maxShadeAlpha) {
+        this.maxShadeAlpha = maxShadeAlpha;
+    }
+
+    /**
+     * Sets page size, cached transforms are dropped when it changes.
+     */
+    public void setSize(int width, int height) {
+        if (this.width == width && this.height == height) return;
+        this.width = width;
+        this.height = height;
+        for (int i = 0; i <= STEPS; i++)
+            matrices[i] = null;
+    }
+
+    /**
+     * @param flipDistance     current flip distance
+     * @param distancePerPage  flip distance between two neighbour pages
+     * @return degrees the current page has turned towards the next one, 0 to 180
+     */
+    public static float getDegreesDone(float flipDistance, float distancePerPage) {
+        float distance = flipDistance % distancePerPage;
+        if (distance < 0)
+            distance += distancePerPage;
+        return (distance / distancePerPage) * 180;
+    }
+
+    /**
+     * @return whether the left half is flipping, otherwise the right one is
+     */
+    public boolean isFlippingLeft(float degrees) {
+        return degrees > 90;
+    }
+
+    /**
+     * @return true when shine is drawn over the right half, otherwise shade is drawn over the left one
+     */
+    public boolean isShine(float degrees) {
+        return degrees < 90;
+    }
+
+    public int getOverlayAlpha(float degrees) {
+        int step = step(degrees);
+        compute(step);
+        return alphas[step];
+    }
+
+    /**
+     * @return transform of the flipping half in android.graphics.Matrix.setValues() order,
+     * the array is cached and must not be modified
+     */
+    public float[] getMatrix(float degrees) {
+        int step = step(degrees);
+        compute(step);
+        return matrices[step];
+    }
+
+    private int step(float degrees) {
+        int step = Math.round(degrees * STEPS_PER_DEGREE);
+        return Math.min(Math.max(step, 0), STEPS);
+    }
+
+    private void compute(int step) {
+        if (matrices[step] != null) return;
+        float degrees = (float) step / STEPS_PER_DEGREE;
+
+        alphas[step] = (int) ((isShine(degrees) ? degrees : Math.abs(degrees - 180)) / 90f * maxShadeAlpha);
+
+        // Same as Camera.rotateY() around the page center, with the projection scaled
+        // down PERSPECTIVE_SCALE times before and back up after the rotation
+        double rotation = Math.toRadians(isFlippingLeft(degrees) ? 180 - degrees : -degrees);
+        float cos = (float) Math.cos(rotation);
+        float perspective = (float) -Math.sin(rotation) / CAMERA_DISTANCE / PERSPECTIVE_SCALE;
+        float cx = width / 2;
+        float cy = height / 2;
+        matrices[step] = new float[]{
+                cos + cx * perspective, 0, cx * (1 - cos - perspective * cx),
+                cy * perspective, 1, -cy * perspective * cx,
+                perspective, 0, 1 - perspective * cx};
+    }
+}
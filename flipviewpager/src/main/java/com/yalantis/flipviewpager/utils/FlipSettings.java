@@ -1,43 +1,237 @@
 package com.yalantis.flipviewpager.utils;
 
-import java.util.HashMap;
-import java.util.Map;
+import android.content.ComponentCallbacks2;
+import android.os.Parcelable;
+import android.view.animation.Interpolator;
+import android.view.animation.LinearInterpolator;
+
+import com.yalantis.flipviewpager.view.FlipViewPager;
 
 /**
  * @author Yalantis
  */
 public class FlipSettings {
     private int defaultPage;
+    private boolean snapshotFlips;
+    private boolean idlePrefetch;
+    private int flipDuration;
+    private Interpolator flipInterpolator;
+    private boolean adaptiveQuality;
+    private int trimMemoryLevel;
+    private boolean stableIds;
 
-    private Map<Integer, Integer> pages = new HashMap<>();
+    private final PageStateStore pages;
+    // Pages requested for rows which weren't on screen
+    private final PageStateStore requestedPages = new PageStateStore(0);
+    // Page of rows without a request of their own
+    private int requestedAllPage;
 
-    private FlipSettings(int defaultPage) {
-        this.defaultPage = defaultPage;
+    private FlipSettings(Builder builder) {
+        this.defaultPage = builder.defaultPage;
+        this.requestedAllPage = builder.defaultPage;
+        this.snapshotFlips = builder.snapshotFlips;
+        this.idlePrefetch = builder.idlePrefetch;
+        this.flipDuration = builder.flipDuration;
+        this.flipInterpolator = builder.flipInterpolator;
+        this.adaptiveQuality = builder.adaptiveQuality;
+        this.trimMemoryLevel = builder.trimMemoryLevel;
+        this.stableIds = builder.stableIds;
+        this.pages = new PageStateStore(builder.maxSavedPages);
     }
 
     public void savePageState(int position, int page) {
-        pages.put(position, page);
+        // Rows on default page aren't stored at all
+        if (page == defaultPage)
+            pages.remove(position);
+        else
+            pages.put(position, page);
     }
 
+    /**
+     * @return page saved for the row, default page when nothing is saved. Pages below 128
+     * come from Integer's cache, so they aren't allocated.
+     */
     public Integer getPageForPosition(int position) {
-        return pages.containsKey(position) ? pages.get(position) : defaultPage;
+        return pages.get(position, defaultPage);
+    }
+
+    /**
+     * Remembers page the row should show when it's bound next time.
+     */
+    public void requestPage(int position, int page) {
+        requestedPages.put(position, page);
+    }
+
+    /**
+     * Rows bound afterwards show given page, requests of single rows are dropped.
+     */
+    public void requestAllPages(int page) {
+        requestedPages.clear();
+        requestedAllPage = page;
+    }
+
+    /**
+     * @return page requested for the row, or the one requested for all rows, default page initially
+     */
+    public int consumeRequestedPage(int position) {
+        int page = requestedPages.get(position, requestedAllPage);
+        requestedPages.remove(position);
+        return page;
+    }
+
+    /**
+     * Moves saved pages along with their rows, called when rows are inserted before them.
+     */
+    public void onRowsInserted(int position, int count) {
+        pages.insertRows(position, count);
+        requestedPages.insertRows(position, count);
+    }
+
+    public void onRowsRemoved(int position, int count) {
+        pages.removeRows(position, count);
+        requestedPages.removeRows(position, count);
+    }
+
+    public void onRowMoved(int fromPosition, int toPosition) {
+        pages.moveRow(fromPosition, toPosition);
+        requestedPages.moveRow(fromPosition, toPosition);
+    }
+
+    /**
+     * @return compact snapshot of saved pages to put into activity's saved state
+     */
+    public Parcelable onSaveInstanceState() {
+        // Saved state may be parcelled later, after further flips changed the live store
+        return pages.copy();
+    }
+
+    public void onRestoreInstanceState(Parcelable state) {
+        if (state instanceof PageStateStore && state != pages)
+            pages.restore((PageStateStore) state);
     }
 
     public int getDefaultPage() {
         return defaultPage;
     }
 
+    public boolean isSnapshotFlips() {
+        return snapshotFlips;
+    }
+
+    public boolean isIdlePrefetch() {
+        return idlePrefetch;
+    }
+
+    public int getFlipDuration() {
+        return flipDuration;
+    }
+
+    public Interpolator getFlipInterpolator() {
+        return flipInterpolator;
+    }
+
+    public boolean isAdaptiveQuality() {
+        return adaptiveQuality;
+    }
+
+    public int getTrimMemoryLevel() {
+        return trimMemoryLevel;
+    }
+
+    public boolean isStableIds() {
+        return stableIds;
+    }
+
     public static class Builder {
 
         private int defaultPage = 1;
+        private boolean snapshotFlips;
+        private boolean idlePrefetch;
+        private int maxSavedPages;
+        private int flipDuration = FlipViewPager.FLIP_ANIM_DURATION;
+        private Interpolator flipInterpolator = new LinearInterpolator();
+        private boolean adaptiveQuality;
+        private int trimMemoryLevel = ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW;
+        private boolean stableIds;
 
         public Builder defaultPage(int page) {
             this.defaultPage = page;
             return this;
         }
 
+        /**
+         * Draw flipping pages from cached layers instead of redrawing their hierarchies every frame.
+         */
+        public Builder snapshotFlips(boolean snapshotFlips) {
+            this.snapshotFlips = snapshotFlips;
+            return this;
+        }
+
+        /**
+         * Create rows ahead and bind pages the flip hasn't reached yet while the main thread is idle,
+         * instead of doing it when the row scrolls on screen or is flipped.
+         */
+        public Builder idlePrefetch(boolean idlePrefetch) {
+            this.idlePrefetch = idlePrefetch;
+            return this;
+        }
+
+        /**
+         * Limits how many rows remember their page, least recently used rows are forgotten first.
+         * 0, the default, means no limit.
+         */
+        public Builder maxSavedPages(int maxSavedPages) {
+            this.maxSavedPages = maxSavedPages;
+            return this;
+        }
+
+        /**
+         * Duration of a flip over a whole page in milliseconds, shorter flips take less.
+         */
+        public Builder flipDuration(int flipDuration) {
+            this.flipDuration = flipDuration;
+            return this;
+        }
+
+        /**
+         * Interpolator of flip animations, linear by default.
+         */
+        public Builder flipInterpolator(Interpolator flipInterpolator) {
+            this.flipInterpolator = flipInterpolator;
+            return this;
+        }
+
+        /**
+         * Drop flip effects step by step while frames come late and bring them back once frames
+         * are on time, see FlipQualityController.
+         */
+        public Builder adaptiveQuality(boolean adaptiveQuality) {
+            this.adaptiveQuality = adaptiveQuality;
+            return this;
+        }
+
+        /**
+         * Lowest ComponentCallbacks2 trim level at which views not on screen are dropped,
+         * TRIM_MEMORY_RUNNING_LOW by default. Integer.MAX_VALUE never drops them.
+         */
+        public Builder trimMemoryLevel(int trimMemoryLevel) {
+            this.trimMemoryLevel = trimMemoryLevel;
+            return this;
+        }
+
+        /**
+         * Give rows stable ids made of BaseFlipAdapter.getStableItemId() of their items, so rows
+         * moved by submitList() keep their views and flipped pages. Override getStableItemId()
+         * first: ids must be unique and mustn't change when an item is edited, which the default
+         * hash code doesn't guarantee. Off by default.
+         */
+        public Builder stableIds(boolean stableIds) {
+            this.stableIds = stableIds;
+            return this;
+        }
+
         public FlipSettings build() {
-            return new FlipSettings(defaultPage);
+            return new FlipSettings(this);
         }
     }
 }
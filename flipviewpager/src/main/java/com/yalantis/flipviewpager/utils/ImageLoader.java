@@ -0,0 +1,32 @@
+package com.yalantis.flipviewpager.utils;
+
+import android.view.View;
+import android.widget.ImageView;
+
+import java.io.File;
+
+/**
+ * Loads images of page content off the main thread, decoded no bigger than needed.
+ * Pages usually show an image on half of the row, so getPage() passes
+ * parent.getWidth() / 2 and parent.getHeight() as target size. Main thread only.
+ *
+ * @author Yalantis
+ */
+public interface ImageLoader {
+    // Shows drawable resource in the view, sizes of 0 stand for half of the screen width and its height
+    void loadResource(ImageView imageView, int resId, int targetWidth, int targetHeight);
+
+    // Shows image file in the view, sizes of 0 stand for half of the screen width and its height
+    void loadFile(ImageView imageView, File file, int targetWidth, int targetHeight);
+
+    // Cancels pending requests of the view and image views inside it
+    void cancel(View root);
+
+    /**
+     * Releases cached images on memory pressure.
+     *
+     * @param level ComponentCallbacks2 trim level
+     * @return bytes released
+     */
+    long trimMemory(int level);
+}
@@ -0,0 +1,250 @@
+package com.yalantis.flipviewpager.utils;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.util.SparseIntArray;
+
+/**
+ * Maps row positions to flipped pages without boxing. When bounded, the least recently
+ * used row is forgotten once the store is full.
+ *
+ * @author Yalantis
+ */
+public class PageStateStore implements Parcelable {
+    private static final int INSERT = 0;
+    private static final int REMOVE = 1;
+    private static final int MOVE = 2;
+    private static final int NONE = -1;
+    private static final int INITIAL_CAPACITY = 8;
+
+    // Entries are slots of these arrays, linked from the least to the most recently used one.
+    // Free slots are linked through next.
+    private int[] rows = new int[INITIAL_CAPACITY];
+    private int[] pages = new int[INITIAL_CAPACITY];
+    private int[] prev = new int[INITIAL_CAPACITY];
+    private int[] next = new int[INITIAL_CAPACITY];
+    private int eldest = NONE;
+    private int newest = NONE;
+    private int firstFree = NONE;
+    // Slots below it were used at least once
+    private int usedSlots;
+    private int size;
+    // Row position to slot, rebuilt on first access after rows were shifted
+    private final SparseIntArray slots = new SparseIntArray();
+    private boolean slotsStale;
+    private final int maxSize;
+
+    /**
+     * @param maxSize maximum number of stored rows, 0 for unbounded
+     */
+    public PageStateStore(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public void put(int position, int page) {
+        int slot = findSlot(position);
+        if (slot == NONE) {
+            if (maxSize > 0 && size >= maxSize)
+                remove(rows[eldest]);
+            slot = obtainSlot();
+            rows[slot] = position;
+            slots.put(position, slot);
+            size++;
+        } else {
+            unlink(slot);
+        }
+        pages[slot] = page;
+        linkNewest(slot);
+    }
+
+    public int get(int position, int defaultPage) {
+        int slot = findSlot(position);
+        if (slot == NONE) return defaultPage;
+        if (maxSize > 0 && slot != newest) {
+            unlink(slot);
+            linkNewest(slot);
+        }
+        return pages[slot];
+    }
+
+    public void remove(int position) {
+        int slot = findSlot(position);
+        if (slot == NONE) return;
+        slots.delete(position);
+        unlink(slot);
+        freeSlot(slot);
+        size--;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        slots.clear();
+        slotsStale = false;
+        eldest = newest = firstFree = NONE;
+        usedSlots = 0;
+        size = 0;
+    }
+
+    /**
+     * Replaces stored pages with the ones of given store, keeping their usage order.
+     */
+    public void restore(PageStateStore store) {
+        clear();
+        for (int slot = store.eldest; slot != NONE; slot = store.next[slot])
+            put(store.rows[slot], store.pages[slot]);
+    }
+
+    /**
+     * @return store holding the same pages, not changed by later changes of this one
+     */
+    public PageStateStore copy() {
+        PageStateStore copy = new PageStateStore(maxSize);
+        copy.restore(this);
+        return copy;
+    }
+
+    /**
+     * Shifts rows after the inserted ones.
+     */
+    public void insertRows(int start, int count) {
+        remap(INSERT, start, count);
+    }
+
+    /**
+     * Forgets removed rows and shifts the following ones.
+     */
+    public void removeRows(int start, int count) {
+        remap(REMOVE, start, count);
+    }
+
+    /**
+     * Keeps the page of the moved row and shifts rows between its old and new position.
+     */
+    public void moveRow(int from, int to) {
+        remap(MOVE, from, to);
+    }
+
+    // Rows are shifted in place, the position index is rebuilt once for all shifts of a list change
+    private void remap(int operation, int a, int b) {
+        int slot = eldest;
+        while (slot != NONE) {
+            int following = next[slot];
+            int position = mapRow(rows[slot], operation, a, b);
+            if (position < 0) {
+                unlink(slot);
+                freeSlot(slot);
+                size--;
+            } else {
+                rows[slot] = position;
+            }
+            slot = following;
+        }
+        slotsStale = true;
+    }
+
+    private static int mapRow(int row, int operation, int a, int b) {
+        switch (operation) {
+            case INSERT:
+                return row >= a ? row + b : row;
+            case REMOVE:
+                return row < a ? row : row < a + b ? -1 : row - b;
+            default:
+                if (row == a) return b;
+                if (a < b && row > a && row <= b) return row - 1;
+                if (b < a && row >= b && row < a) return row + 1;
+                return row;
+        }
+    }
+
+    private int findSlot(int position) {
+        if (slotsStale) {
+            slotsStale = false;
+            slots.clear();
+            for (int slot = eldest; slot != NONE; slot = next[slot])
+                slots.put(rows[slot], slot);
+        }
+        return slots.get(position, NONE);
+    }
+
+    private int obtainSlot() {
+        if (firstFree != NONE) {
+            int slot = firstFree;
+            firstFree = next[slot];
+            return slot;
+        }
+        if (usedSlots == rows.length) {
+            int capacity = rows.length * 2;
+            rows = grow(rows, capacity);
+            pages = grow(pages, capacity);
+            prev = grow(prev, capacity);
+            next = grow(next, capacity);
+        }
+        return usedSlots++;
+    }
+
+    private static int[] grow(int[] array, int capacity) {
+        int[] grown = new int[capacity];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    private void freeSlot(int slot) {
+        next[slot] = firstFree;
+        firstFree = slot;
+    }
+
+    private void linkNewest(int slot) {
+        prev[slot] = newest;
+        next[slot] = NONE;
+        if (newest != NONE) next[newest] = slot;
+        else eldest = slot;
+        newest = slot;
+    }
+
+    private void unlink(int slot) {
+        if (prev[slot] != NONE) next[prev[slot]] = next[slot];
+        else eldest = next[slot];
+        if (next[slot] != NONE) prev[next[slot]] = prev[slot];
+        else newest = prev[slot];
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        // Least recently used first, so the restored store forgets the same rows first
+        int[] positions = new int[size];
+        int[] values = new int[size];
+        int i = 0;
+        for (int slot = eldest; slot != NONE; slot = next[slot], i++) {
+            positions[i] = rows[slot];
+            values[i] = pages[slot];
+        }
+        dest.writeInt(maxSize);
+        dest.writeIntArray(positions);
+        dest.writeIntArray(values);
+    }
+
+    public static final Creator<PageStateStore> CREATOR = new Creator<PageStateStore>() {
+        @Override
+        public PageStateStore createFromParcel(Parcel source) {
+            PageStateStore store = new PageStateStore(source.readInt());
+            int[] positions = source.createIntArray();
+            int[] values = source.createIntArray();
+            for (int i = 0; i < positions.length; i++)
+                store.put(positions[i], values[i]);
+            return store;
+        }
+
+        @Override
+        public PageStateStore[] newArray(int size) {
+            return new PageStateStore[size];
+        }
+    };
+}
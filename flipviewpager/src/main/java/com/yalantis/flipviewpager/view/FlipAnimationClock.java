@@ -0,0 +1,121 @@
+package com.yalantis.flipviewpager.view;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+
+/**
+ * Advances every running flip animation from a single frame callback, so any number
+ * of flipping rows costs one callback per frame and all of them step on the same frame time.
+ * Frames come from Choreographer on API 16+ and from a Handler below it. Main thread only.
+ *
+ * @author Yalantis
+ */
+class FlipAnimationClock {
+    // Frame interval of the Handler fallback
+    private static final long FRAME_DELAY_MS = 16;
+
+    private static FlipAnimationClock instance;
+
+    private final ArrayList<FlipViewPager> pagers = new ArrayList<>();
+    // Pagers advanced in the current frame, reused so frames don't allocate
+    private final ArrayList<FlipViewPager> framePagers = new ArrayList<>();
+    private final FrameSource frameSource;
+    private boolean scheduled;
+
+    static FlipAnimationClock getInstance() {
+        if (instance == null)
+            instance = new FlipAnimationClock();
+        return instance;
+    }
+
+    private FlipAnimationClock() {
+        frameSource = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN
+                ? new ChoreographerFrameSource(this) : new HandlerFrameSource(this);
+    }
+
+    /**
+     * Clock driven by given frame source, which calls doFrame() itself. Lets tests step frames by hand.
+     */
+    FlipAnimationClock(FrameSource frameSource) {
+        this.frameSource = frameSource;
+    }
+
+    /**
+     * Advances the pager on every frame until its animation finishes.
+     */
+    void start(FlipViewPager pager) {
+        if (!pagers.contains(pager)) pagers.add(pager);
+        if (!scheduled) {
+            scheduled = true;
+            frameSource.postFrame();
+        }
+    }
+
+    void stop(FlipViewPager pager) {
+        pagers.remove(pager);
+    }
+
+    void doFrame(long frameTimeNanos) {
+        scheduled = false;
+        // addAll() would copy through a new array
+        for (int i = 0; i < pagers.size(); i++)
+            framePagers.add(pagers.get(i));
+        for (int i = 0; i < framePagers.size(); i++) {
+            FlipViewPager pager = framePagers.get(i);
+            if (!pager.doAnimationFrame(frameTimeNanos)) pagers.remove(pager);
+        }
+        framePagers.clear();
+        if (!pagers.isEmpty() && !scheduled) {
+            scheduled = true;
+            frameSource.postFrame();
+        }
+    }
+
+    interface FrameSource {
+        // Asks for a single doFrame() call on the next frame
+        void postFrame();
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static class ChoreographerFrameSource implements FrameSource, Choreographer.FrameCallback {
+        private final FlipAnimationClock clock;
+
+        ChoreographerFrameSource(FlipAnimationClock clock) {
+            this.clock = clock;
+        }
+
+        @Override
+        public void postFrame() {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            clock.doFrame(frameTimeNanos);
+        }
+    }
+
+    private static class HandlerFrameSource implements FrameSource, Runnable {
+        private final FlipAnimationClock clock;
+        private final Handler handler = new Handler(Looper.getMainLooper());
+
+        HandlerFrameSource(FlipAnimationClock clock) {
+            this.clock = clock;
+        }
+
+        @Override
+        public void postFrame() {
+            handler.postDelayed(this, FRAME_DELAY_MS);
+        }
+
+        @Override
+        public void run() {
+            clock.doFrame(System.nanoTime());
+        }
+    }
+}
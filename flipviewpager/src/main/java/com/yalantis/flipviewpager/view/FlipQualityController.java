@@ -0,0 +1,96 @@
+package com.yalantis.flipviewpager.view;
+
+/**
+ * Lowers flip rendering quality when flip frames come late and raises it back once they
+ * are on time again. Can be shared by many FlipViewPagers, pagers drawn in the same frame
+ * count as one frame. Every lower level also keeps the savings of the levels above it.
+ *
+ * @author Yalantis
+ */
+public class FlipQualityController {
+    // Everything is drawn
+    public static final int QUALITY_FULL = 0;
+    // Shade, shine and over-flip edges aren't drawn
+    public static final int QUALITY_NO_EFFECTS = 1;
+    // Flipping half is drawn without anti-aliasing and bitmap filtering
+    public static final int QUALITY_NO_ANTIALIAS = 2;
+    // Pages are drawn from cached layers, whether snapshot flips are enabled or not
+    public static final int QUALITY_SNAPSHOT = 3;
+
+    public static final long DEFAULT_FRAME_BUDGET_MS = 16;
+
+    // Frames judged together before quality changes
+    private static final int WINDOW_FRAMES = 30;
+    // Late frames of a window which step quality down
+    private static final int STEP_DOWN_LATE_FRAMES = WINDOW_FRAMES / 5;
+    // Windows in a row without late frames which step quality up
+    private static final int STEP_UP_WINDOWS = 3;
+    // Longer gaps are pauses between flips rather than slow frames
+    private static final long MAX_FRAME_INTERVAL_MS = 100;
+
+    public interface OnQualityChangeListener {
+        // One of QUALITY_FULL, QUALITY_NO_EFFECTS, QUALITY_NO_ANTIALIAS or QUALITY_SNAPSHOT
+        void onQualityChanged(FlipQualityController controller, int quality);
+    }
+
+    private final long frameBudget;
+    private int quality = QUALITY_FULL;
+    private OnQualityChangeListener onQualityChangeListener;
+
+    private long lastFrameTime = -1;
+    private int frames;
+    private int lateFrames;
+    private int goodWindows;
+
+    public FlipQualityController() {
+        this(DEFAULT_FRAME_BUDGET_MS);
+    }
+
+    /**
+     * @param frameBudgetMillis frame interval of the display, frames taking half as long again are late
+     */
+    public FlipQualityController(long frameBudgetMillis) {
+        this.frameBudget = frameBudgetMillis;
+    }
+
+    public int getQuality() {
+        return quality;
+    }
+
+    public void setOnQualityChangeListener(OnQualityChangeListener onQualityChangeListener) {
+        this.onQualityChangeListener = onQualityChangeListener;
+    }
+
+    /**
+     * Called for every flip frame with View.getDrawingTime(), which is the same for all views of a frame.
+     */
+    void onFrameDrawn(long drawingTime) {
+        if (drawingTime == lastFrameTime) return;
+        long interval = drawingTime - lastFrameTime;
+        boolean measured = lastFrameTime >= 0 && interval <= MAX_FRAME_INTERVAL_MS;
+        lastFrameTime = drawingTime;
+        if (!measured) return;
+
+        frames++;
+        if (interval * 2 > frameBudget * 3) lateFrames++;
+        if (frames < WINDOW_FRAMES) return;
+
+        if (lateFrames >= STEP_DOWN_LATE_FRAMES) {
+            goodWindows = 0;
+            if (quality < QUALITY_SNAPSHOT) setQuality(quality + 1);
+        } else if (lateFrames > 0) {
+            goodWindows = 0;
+        } else if (++goodWindows >= STEP_UP_WINDOWS) {
+            goodWindows = 0;
+            if (quality > QUALITY_FULL) setQuality(quality - 1);
+        }
+        frames = 0;
+        lateFrames = 0;
+    }
+
+    private void setQuality(int quality) {
+        this.quality = quality;
+        if (onQualityChangeListener != null)
+            onQualityChangeListener.onQualityChanged(this, quality);
+    }
+}
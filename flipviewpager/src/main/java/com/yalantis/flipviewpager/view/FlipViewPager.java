@@ -1,27 +1,34 @@
 package com.yalantis.flipviewpager.view;
 
+import android.app.ActivityManager;
 import android.content.Context;
-import android.graphics.Camera;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Matrix;
 import android.graphics.Paint;
+import android.graphics.PaintFlagsDrawFilter;
 import android.graphics.Rect;
+import android.os.SystemClock;
+import android.support.v4.app.ActivityManagerCompat;
+import android.support.v4.view.NestedScrollingChild;
+import android.support.v4.view.NestedScrollingChildHelper;
+import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
+import android.util.SparseArray;
 import android.view.MotionEvent;
 import android.view.VelocityTracker;
 import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.view.animation.Interpolator;
 import android.view.animation.LinearInterpolator;
 import android.widget.AdapterView;
 import android.widget.EdgeEffect;
 import android.widget.FrameLayout;
 import android.widget.ListAdapter;
-import android.widget.ListView;
-import android.widget.Scroller;
 
-import java.util.HashMap;
+import com.yalantis.flipviewpager.utils.FlipGeometry;
 
 /**
  * onInterceptTouchEvent() modified by Tom-Philipp Seifert to allow delegation of click events
@@ -29,30 +36,54 @@ import java.util.HashMap;
  *
  * @author Yalantis
  */
-public class FlipViewPager extends FrameLayout {
+public class FlipViewPager extends FrameLayout implements NestedScrollingChild {
 
     public static final int FLIP_ANIM_DURATION = 300;
     public static final int FLIP_DISTANCE = 180;
     public static final int FLIP_SHADE_ALPHA = 130;
     public static final int INVALID_POINTER = -1;
 
-    private final HashMap<Integer, PageItem> pages = new HashMap<>();
+    // Page is at rest
+    public static final int FLIP_STATE_IDLE = 0;
+    // Page is being dragged by the user
+    public static final int FLIP_STATE_DRAGGING = 1;
+    // Page is animating to its final position
+    public static final int FLIP_STATE_SETTLING = 2;
+    // Pages drawn from layers while flipping: prev, current and next
+    private static final int SNAPSHOT_PAGES = 3;
+
+    private final SparseArray<PageItem> pages = new SparseArray<>();
 
     private final PageItem mPrev = new PageItem();
     private final PageItem mCurrent = new PageItem();
     private final PageItem mNext = new PageItem();
 
-    private Scroller mScroller;
+    // Flip animation timeline, advanced by FlipAnimationClock with frame times
+    private boolean mAnimating;
+    private float mAnimStartDistance;
+    private float mAnimEndDistance;
+    // Taken from the first animation frame, -1 until then
+    private long mAnimStartTime;
+    private long mAnimDuration;
+    private FlipAnimationClock mAnimationClock = FlipAnimationClock.getInstance();
+    private int mFlipDuration = FLIP_ANIM_DURATION;
+    private Interpolator mInterpolator = new LinearInterpolator();
     private VelocityTracker mVelocityTracker;
     private EdgeEffect mLeftEdgeEffect;
     private EdgeEffect mRightEdgeEffect;
 
+    // Reused for hit tests so touch handling doesn't allocate
+    private final int[] mLocation = new int[2];
+    private View mClickTarget;
+
     private Rect mRightRect = new Rect();
     private Rect mLeftRect = new Rect();
-    private Camera mCamera = new Camera();
+    private FlipGeometry mGeometry = new FlipGeometry(FLIP_SHADE_ALPHA);
     private Matrix mMatrix = new Matrix();
     private Paint mShadePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
     private Paint mShinePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private PaintFlagsDrawFilter mNoAntialiasFilter =
+            new PaintFlagsDrawFilter(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG, 0);
 
     private int mMinimumVelocity;
     private int mMaximumVelocity;
@@ -63,33 +94,191 @@ public class FlipViewPager extends FrameLayout {
     private int mMaxItems = 0;
 
     private boolean flipping;
+    private int mFlipState = FLIP_STATE_IDLE;
     private boolean overFlipping;
+    private boolean snapshotEnabled;
+    private boolean snapshotActive;
+    private boolean lowRamDevice;
 
     private float mFlipDistance = -1;
+    private int mWidthMeasureSpec;
+    private int mHeightMeasureSpec;
     private int mTouchSlop;
+    private int mAxisSlop;
+    // Axis the current gesture is locked to, ViewCompat.SCROLL_AXIS_NONE until it passes mAxisSlop
+    private int mScrollAxis = ViewCompat.SCROLL_AXIS_NONE;
+    private NestedScrollingChildHelper mNestedScrollingHelper;
+    private final int[] mScrollConsumed = new int[2];
 
     private float mLastMotionX = -1;
     private float mLastMotionY = -1;
     private int mActivePointerId = INVALID_POINTER;
 
     private OnChangePageListener onChangePageListener;
-
-    // Internal interface to store page position
+    private OnFlipStateChangeListener onFlipStateChangeListener;
+    private OnFlipMetricsListener metricsListener;
+    // Start times of the pending metrics, 0 when nothing is measured
+    private long mSlopTime;
+    private long mFlipStartTime;
+    // Down time of the gesture in uptime millis, 0 once its response is reported
+    private long mTouchDownTime;
+    private PagePool pagePool;
+    private FlipQualityController qualityController;
+
+    // Internal interface to store page position, called once the flip settles
     public interface OnChangePageListener {
         public void onFlipped(int page);
     }
 
+    /**
+     * Called once per state transition, never per frame.
+     */
+    public interface OnFlipStateChangeListener {
+        // One of FLIP_STATE_IDLE, FLIP_STATE_DRAGGING or FLIP_STATE_SETTLING
+        void onFlipStateChanged(FlipViewPager view, int state);
+
+        // Flip came to rest on given page, good place to start deferred work
+        void onPageSettled(FlipViewPager view, int page);
+    }
+
+    /**
+     * Receives timings of drawing and binding, all durations are in nanoseconds.
+     * Nothing is measured while no listener is set.
+     */
+    public interface OnFlipMetricsListener {
+        // Time spent in dispatchDraw() for a frame of running flip
+        void onFrameDrawn(FlipViewPager view, long drawNanos);
+
+        // Time from passing touch slop until the first flip frame is drawn
+        void onFirstFrame(FlipViewPager view, long latencyNanos);
+
+        // Time from touch down until the first flip frame of the gesture is drawn
+        void onTouchResponse(FlipViewPager view, long latencyNanos);
+
+        // Time from flip start (drag or flipToPage()) until it settles on a page
+        void onFlipCompleted(FlipViewPager view, int page, long durationNanos);
+
+        // Time spent in adapter's getView() for a page
+        void onPageBound(FlipViewPager view, int page, long bindNanos);
+
+        // Flip was dragged past the first or last page by given flip distance
+        void onOverFlip(FlipViewPager view, float overFlipDistance);
+    }
+
     class PageItem {
         View pageView;
+        // Whether pageView holds the data of the current adapter binding
+        boolean bound;
+        int viewType;
+    }
+
+    /**
+     * Returns page for given index, binding it through the adapter if it wasn't bound yet
+     * since the last setAdapter() call. Only pages reached by the flip are ever bound.
+     */
+    private PageItem obtainPage(int i) {
+        PageItem item = pages.get(i);
+        if (item == null) {
+            item = new PageItem();
+            pages.put(i, item);
+        }
+        if (!item.bound) {
+            int viewType = adapter.getItemViewType(i);
+            if (item.viewType != viewType) {
+                releasePage(item);
+                item.viewType = viewType;
+            }
+            View convertView = item.pageView;
+            if (convertView == null && pagePool != null)
+                convertView = pagePool.getRecycledPage(viewType);
+            long bindStart = metricsListener != null ? System.nanoTime() : 0;
+            item.pageView = adapter.getView(i, convertView, this);
+            item.bound = true;
+            if (metricsListener != null)
+                metricsListener.onPageBound(this, i, System.nanoTime() - bindStart);
+        }
+        return item;
+    }
 
-        void recycle() {
-            removeView(pageView);
+    /**
+     * Rebinds page through the adapter without changing current page. Pages in the flip window
+     * are rebound immediately, the other ones when the flip reaches them.
+     */
+    public void rebindPage(int page) {
+        PageItem item = pages.get(page);
+        if (item == null || !item.bound) return;
+        item.bound = false;
+        if (Math.abs(page - mCurrentPageIndex) > 1) return;
+
+        View oldView = item.pageView;
+        View newView = obtainPage(page).pageView;
+        if (newView != oldView) {
+            PageItem slot = page < mCurrentPageIndex ? mPrev : page > mCurrentPageIndex ? mNext : mCurrent;
+            slot.pageView = newView;
+            if (oldView != null) detachPage(oldView);
+            attachPage(newView);
         }
+        invalidate();
+    }
 
-        void fill(int i) {
-            pageView = pages.get(i).pageView;
-            addView(pageView);
+    /**
+     * Binds one page which isn't bound yet, pages nearest to the current one go first.
+     *
+     * @return false if all pages are bound already
+     */
+    public boolean bindPendingPage() {
+        if (adapter == null) return false;
+        for (int distance = 0; distance < mPageCount; distance++) {
+            int after = mCurrentPageIndex + distance;
+            int before = mCurrentPageIndex - distance;
+            if (after >= 0 && after < mPageCount && !isPageBound(after)) {
+                obtainPage(after);
+                return true;
+            }
+            if (before >= 0 && before < mPageCount && !isPageBound(before)) {
+                obtainPage(before);
+                return true;
+            }
         }
+        return false;
+    }
+
+    /**
+     * @return view kept for given page or null. Pages out of the flip window keep their views
+     * detached from the pager, so they aren't found among its children.
+     */
+    public View getPageView(int page) {
+        PageItem item = pages.get(page);
+        return item != null ? item.pageView : null;
+    }
+
+    /**
+     * Drops views of pages out of the flip window, they're bound again when the flip reaches them.
+     *
+     * @return number of page views dropped
+     */
+    public int trimPages() {
+        int trimmed = 0;
+        for (int i = pages.size() - 1; i >= 0; i--) {
+            if (Math.abs(pages.keyAt(i) - mCurrentPageIndex) <= 1) continue;
+            PageItem item = pages.valueAt(i);
+            if (item.pageView != null) trimmed++;
+            releasePage(item);
+            pages.removeAt(i);
+        }
+        return trimmed;
+    }
+
+    private boolean isPageBound(int i) {
+        PageItem item = pages.get(i);
+        return item != null && item.bound;
+    }
+
+    private void releasePage(PageItem item) {
+        if (pagePool != null)
+            pagePool.putRecycledPage(item.viewType, item.pageView);
+        item.pageView = null;
+        item.bound = false;
     }
 
     private void setFlipDistance(float flipDistance) {
@@ -98,20 +287,45 @@ public class FlipViewPager extends FrameLayout {
         int currentPageIndex = Math.round(mFlipDistance / FLIP_DISTANCE);
         if (mCurrentPageIndex != currentPageIndex) {
             mCurrentPageIndex = currentPageIndex;
+            moveWindow();
+        }
 
-            recycleActiveViews();
+        invalidate();
+    }
 
-            if (mCurrentPageIndex > 0)
-                mPrev.fill(mCurrentPageIndex - 1);
+    /**
+     * Fills window slots with pages around the current one. Views moving between slots
+     * stay attached, only the ones leaving or entering the window are detached or attached.
+     */
+    private void moveWindow() {
+        View prev = mPrev.pageView;
+        View current = mCurrent.pageView;
+        View next = mNext.pageView;
+        // All new views are resolved first, so old ones are compared against the whole new window
+        mPrev.pageView = windowPage(mCurrentPageIndex - 1);
+        mCurrent.pageView = windowPage(mCurrentPageIndex);
+        mNext.pageView = windowPage(mCurrentPageIndex + 1);
+
+        detachLeaving(prev);
+        detachLeaving(current);
+        detachLeaving(next);
+        attachEntering(mPrev.pageView, prev, current, next);
+        attachEntering(mCurrent.pageView, prev, current, next);
+        attachEntering(mNext.pageView, prev, current, next);
+    }
 
-            if (mCurrentPageIndex >= 0 && mCurrentPageIndex < mPageCount)
-                mCurrent.fill(mCurrentPageIndex);
+    private void detachLeaving(View view) {
+        if (view != null && view != mPrev.pageView && view != mCurrent.pageView && view != mNext.pageView)
+            detachPage(view);
+    }
 
-            if (mCurrentPageIndex < mPageCount - 1)
-                mNext.fill(mCurrentPageIndex + 1);
-        }
+    private void attachEntering(View view, View prev, View current, View next) {
+        if (view != null && view != prev && view != current && view != next)
+            attachPage(view);
+    }
 
-        invalidate();
+    private View windowPage(int i) {
+        return i >= 0 && i < mPageCount ? obtainPage(i).pageView : null;
     }
 
     public FlipViewPager(Context context, AttributeSet attrs) {
@@ -121,14 +335,100 @@ public class FlipViewPager extends FrameLayout {
 
     private void init() {
         ViewConfiguration configuration = ViewConfiguration.get(getContext());
-        mScroller = new Scroller(getContext(), new LinearInterpolator());
         mTouchSlop = configuration.getScaledPagingTouchSlop();
+        mAxisSlop = configuration.getScaledTouchSlop();
         mMinimumVelocity = configuration.getScaledMinimumFlingVelocity();
         mMaximumVelocity = configuration.getScaledMaximumFlingVelocity();
         mLeftEdgeEffect = new EdgeEffect(getContext());
         mRightEdgeEffect = new EdgeEffect(getContext());
         mShadePaint.setColor(Color.BLACK);
         mShinePaint.setColor(Color.WHITE);
+        lowRamDevice = ActivityManagerCompat.isLowRamDevice(
+                (ActivityManager) getContext().getSystemService(Context.ACTIVITY_SERVICE));
+        setNestedScrollingEnabled(true);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        getNestedScrollingHelper().onDetachedFromWindow();
+        // Running flip jumps to its end
+        if (mAnimating) {
+            stopFlipAnimation();
+            setFlipDistance(mAnimEndDistance);
+        }
+        // Detached row isn't drawn, so it settles here instead of on the next frame
+        if (mFlipState == FLIP_STATE_SETTLING)
+            setFlipState(FLIP_STATE_IDLE);
+        updateSnapshots(false);
+        super.onDetachedFromWindow();
+    }
+
+    /**
+     * Advances running flip animation, called by FlipAnimationClock once per frame.
+     *
+     * @return false once the animation has finished
+     */
+    boolean doAnimationFrame(long frameTimeNanos) {
+        if (!mAnimating) return false;
+        if (mAnimStartTime < 0) mAnimStartTime = frameTimeNanos;
+        float progress = mAnimDuration > 0 ? Math.min(1f, (float) (frameTimeNanos - mAnimStartTime) / mAnimDuration) : 1f;
+        // Doesn't invalidate when the distance hasn't changed since the last frame
+        setFlipDistance(mAnimStartDistance
+                + (mAnimEndDistance - mAnimStartDistance) * mInterpolator.getInterpolation(progress));
+        if (progress < 1f) return true;
+        mAnimating = false;
+        if (!flipping) updateSnapshots(false);
+        // Drawing the last frame settles the page
+        invalidate();
+        return false;
+    }
+
+    private void startFlipAnimation(float endFlipDistance) {
+        mAnimStartDistance = mFlipDistance;
+        mAnimEndDistance = endFlipDistance;
+        mAnimStartTime = -1;
+        mAnimDuration = getFlipDuration(endFlipDistance - mFlipDistance) * 1000000L;
+        mAnimating = true;
+        mAnimationClock.start(this);
+        startSnapshots();
+    }
+
+    private void stopFlipAnimation() {
+        mAnimating = false;
+        mAnimationClock.stop(this);
+    }
+
+    // Replaces the shared clock, so tests step the animation with their own frame times
+    void setAnimationClock(FlipAnimationClock clock) {
+        stopFlipAnimation();
+        mAnimationClock = clock;
+    }
+
+    float getFlipDistance() {
+        return mFlipDistance;
+    }
+
+    int getCurrentPageIndex() {
+        return mCurrentPageIndex;
+    }
+
+    /**
+     * Sets duration of a flip over a whole page in milliseconds, shorter flips take less.
+     */
+    public void setFlipDuration(int flipDuration) {
+        this.mFlipDuration = flipDuration;
+    }
+
+    public void setFlipInterpolator(Interpolator interpolator) {
+        this.mInterpolator = interpolator;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        // Kept to measure pages attached between layout passes
+        mWidthMeasureSpec = widthMeasureSpec;
+        mHeightMeasureSpec = heightMeasureSpec;
     }
 
     @Override
@@ -136,78 +436,195 @@ public class FlipViewPager extends FrameLayout {
         super.onLayout(!changed, left, top, right, bottom);
         mLeftRect.set(0, 0, getWidth() / 2, getHeight());
         mRightRect.set(getWidth() / 2, 0, getWidth(), getHeight());
+        mGeometry.setSize(getWidth(), getHeight());
     }
 
     @Override
     protected void dispatchDraw(Canvas canvas) {
-        if (!mScroller.isFinished() && mScroller.computeScrollOffset())
-            setFlipDistance(mScroller.getCurrY());
+        long drawStart = metricsListener != null ? System.nanoTime() : 0;
+        // Animation itself is advanced by FlipAnimationClock, the frame only draws current distance
+        boolean animating = flipping || mAnimating;
+        int quality = qualityController != null ? qualityController.getQuality() : FlipQualityController.QUALITY_FULL;
 
-        if (flipping || !mScroller.isFinished()) {
+        if (animating) {
             // Drawing prev half
             canvas.save();
             canvas.clipRect(mLeftRect);
-            PageItem leftPage = getDegreesDone() >= 90 ? mPrev : mCurrent;
-            drawChild(canvas, leftPage.pageView, 0);
+            float degrees = getDegreesDone();
+            drawPage(canvas, degrees >= 90 ? mPrev : mCurrent);
 
             canvas.restore();
             // Drawing next half
             canvas.save();
             canvas.clipRect(mRightRect);
-            PageItem rightPage = getDegreesDone() >= 90 ? mCurrent : mNext;
-            drawChild(canvas, rightPage.pageView, 0);
+            drawPage(canvas, degrees >= 90 ? mCurrent : mNext);
             canvas.restore();
             // Drawing rotation
-            drawFlippingHalf(canvas);
+            drawFlippingHalf(canvas, degrees, quality);
         } else {
-            mScroller.abortAnimation();
-            drawChild(canvas, mCurrent.pageView, 0);
-            if (onChangePageListener != null)
-                onChangePageListener.onFlipped(mCurrentPageIndex);
+            drawPage(canvas, mCurrent);
+            setFlipState(FLIP_STATE_IDLE);
         }
-        if (drawEdges(canvas)) {
+        if (metricsListener != null && animating)
+            reportFrame(drawStart);
+        if (qualityController != null && animating)
+            qualityController.onFrameDrawn(getDrawingTime());
+        if (quality >= FlipQualityController.QUALITY_NO_EFFECTS) {
+            mLeftEdgeEffect.finish();
+            mRightEdgeEffect.finish();
+        } else if (drawEdges(canvas)) {
             invalidate();
         }
     }
 
+    /**
+     * Sets controller lowering flip effects when frames come late, null to always draw all of them.
+     */
+    public void setQualityController(FlipQualityController qualityController) {
+        this.qualityController = qualityController;
+    }
+
     public void setOnChangePageListener(OnChangePageListener onChangePageListener) {
         this.onChangePageListener = onChangePageListener;
     }
 
-    private void drawFlippingHalf(Canvas canvas) {
-        canvas.save();
-        mCamera.save();
-        canvas.clipRect(getDegreesDone() > 90 ? mLeftRect : mRightRect);
-        mCamera.rotateY(getDegreesDone() > 90 ? 180 - getDegreesDone() : -getDegreesDone());
-        mCamera.getMatrix(mMatrix);
+    public void setOnFlipStateChangeListener(OnFlipStateChangeListener onFlipStateChangeListener) {
+        this.onFlipStateChangeListener = onFlipStateChangeListener;
+    }
 
-        mMatrix.preScale(0.25f, 0.25f);
-        mMatrix.postScale(4.0f, 4.0f);
-        mMatrix.preTranslate(-getWidth() / 2, -getHeight() / 2);
-        mMatrix.postTranslate(getWidth() / 2, getHeight() / 2);
+    /**
+     * @return one of FLIP_STATE_IDLE, FLIP_STATE_DRAGGING or FLIP_STATE_SETTLING
+     */
+    public int getFlipState() {
+        return mFlipState;
+    }
 
+    private void setFlipState(int state) {
+        if (mFlipState == state) return;
+        mFlipState = state;
+        if (onFlipStateChangeListener != null)
+            onFlipStateChangeListener.onFlipStateChanged(this, state);
+        if (state != FLIP_STATE_IDLE) return;
+
+        if (onChangePageListener != null)
+            onChangePageListener.onFlipped(mCurrentPageIndex);
+        if (onFlipStateChangeListener != null)
+            onFlipStateChangeListener.onPageSettled(this, mCurrentPageIndex);
+        if (metricsListener != null && mFlipStartTime != 0) {
+            metricsListener.onFlipCompleted(this, mCurrentPageIndex, System.nanoTime() - mFlipStartTime);
+            mFlipStartTime = 0;
+        }
+    }
+
+    public void setOnFlipMetricsListener(OnFlipMetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+        if (metricsListener == null) mSlopTime = mFlipStartTime = mTouchDownTime = 0;
+    }
+
+    private void reportFrame(long drawStart) {
+        long now = System.nanoTime();
+        metricsListener.onFrameDrawn(this, now - drawStart);
+        if (mSlopTime != 0) {
+            metricsListener.onFirstFrame(this, now - mSlopTime);
+            mSlopTime = 0;
+        }
+        if (mTouchDownTime != 0) {
+            // Touch times are in uptime millis, including input dispatch delay
+            metricsListener.onTouchResponse(this, (SystemClock.uptimeMillis() - mTouchDownTime) * 1000000);
+            mTouchDownTime = 0;
+        }
+    }
+
+    private void markFlipStart(boolean bySlop) {
+        if (metricsListener == null) return;
+        long now = System.nanoTime();
+        if (mFlipStartTime == 0) mFlipStartTime = now;
+        if (bySlop) mSlopTime = now;
+    }
+
+    /**
+     * When enabled, prev, current and next pages are rendered into layers once a flip starts and
+     * the flip frames are drawn from those layers. A layer is only redrawn when its page invalidates.
+     * Pages are drawn live when there is not enough memory for the layers.
+     */
+    public void setSnapshotEnabled(boolean snapshotEnabled) {
+        this.snapshotEnabled = snapshotEnabled;
+        if (!snapshotEnabled)
+            updateSnapshots(false);
+    }
+
+    /**
+     * Renders pages into layers when a flip starts, they're dropped once it settles. Layers are
+     * switched between frames rather than while drawing, as switching invalidates the pages.
+     */
+    private void startSnapshots() {
+        int quality = qualityController != null ? qualityController.getQuality() : FlipQualityController.QUALITY_FULL;
+        // Lowest quality draws from layers even when snapshot flips aren't enabled
+        if (snapshotEnabled || quality == FlipQualityController.QUALITY_SNAPSHOT)
+            updateSnapshots(true);
+    }
+
+    private void updateSnapshots(boolean active) {
+        if (active && !snapshotActive && !hasSnapshotMemory()) return;
+        if (active == snapshotActive) return;
+        snapshotActive = active;
+        setSnapshot(mPrev.pageView, active);
+        setSnapshot(mCurrent.pageView, active);
+        setSnapshot(mNext.pageView, active);
+    }
+
+    private void setSnapshot(View pageView, boolean snapshot) {
+        // Hardware layer falls back to a software (bitmap) layer without hardware acceleration
+        if (pageView != null)
+            ViewCompat.setLayerType(pageView, snapshot ? LAYER_TYPE_HARDWARE : LAYER_TYPE_NONE, null);
+    }
+
+    private boolean hasSnapshotMemory() {
+        if (lowRamDevice) return false;
+        Runtime runtime = Runtime.getRuntime();
+        long available = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        // Keep at least half of the available memory for everything else
+        return available / 2 > SNAPSHOT_PAGES * 4L * getWidth() * getHeight();
+    }
+
+    /**
+     * Sets pool used to share page views with other FlipViewPagers, pages this view doesn't
+     * need anymore are put there and pages it has no view for are taken from there.
+     */
+    public void setPagePool(PagePool pagePool) {
+        this.pagePool = pagePool;
+    }
+
+    // Window slots before the first and after the last page are empty
+    private void drawPage(Canvas canvas, PageItem page) {
+        if (page.pageView != null) drawChild(canvas, page.pageView, 0);
+    }
+
+    private void drawFlippingHalf(Canvas canvas, float degrees, int quality) {
+        canvas.save();
+        canvas.clipRect(mGeometry.isFlippingLeft(degrees) ? mLeftRect : mRightRect);
+        mMatrix.setValues(mGeometry.getMatrix(degrees));
         canvas.concat(mMatrix);
-        drawChild(canvas, mCurrent.pageView, 0);
-        drawFlippingShadeShine(canvas);
-        mCamera.restore();
+        boolean noAntialias = quality >= FlipQualityController.QUALITY_NO_ANTIALIAS;
+        if (noAntialias) canvas.setDrawFilter(mNoAntialiasFilter);
+        drawPage(canvas, mCurrent);
+        // Draw filter isn't part of the saved canvas state
+        if (noAntialias) canvas.setDrawFilter(null);
+        if (quality < FlipQualityController.QUALITY_NO_EFFECTS)
+            drawFlippingShadeShine(canvas, degrees);
         canvas.restore();
     }
 
     @Override
     public boolean onInterceptTouchEvent(MotionEvent ev) {
-        // Custom code starts here
-        View view = mCurrent.pageView;
-        if (view instanceof ViewGroup) {
-            ViewGroup viewGroup = (ViewGroup) view;
-            for (int i = 0; i < viewGroup.getChildCount(); i++) {
-                final View childView = viewGroup.getChildAt(i);
-                checkIfChildWasClicked(ev, childView);
-            }
-        }
-
-        // Custom code ends here
         int action = ev.getAction() & MotionEvent.ACTION_MASK;
+        if (action == MotionEvent.ACTION_UP && !flipping)
+            performPendingClick(ev);
         if (action == MotionEvent.ACTION_CANCEL || action == MotionEvent.ACTION_UP) {
+            mClickTarget = null;
+            mTouchDownTime = 0;
+            mScrollAxis = ViewCompat.SCROLL_AXIS_NONE;
+            stopNestedScroll();
             toggleFlip(false);
             mActivePointerId = INVALID_POINTER;
             recycleVelocity();
@@ -235,6 +652,7 @@ public class FlipViewPager extends FrameLayout {
                 float yDiff = Math.abs(dy);
 
                 if (xDiff > mTouchSlop && xDiff > yDiff) {
+                    markFlipStart(true);
                     toggleFlip(true);
                     mLastMotionX = x;
                     mLastMotionY = y;
@@ -242,10 +660,17 @@ public class FlipViewPager extends FrameLayout {
                 break;
 
             case MotionEvent.ACTION_DOWN:
+                // Single hit test per gesture, the click itself is performed on ACTION_UP
+                mClickTarget = findClickTarget(mCurrent.pageView, ev.getRawX(), ev.getRawY());
+                mScrollAxis = ViewCompat.SCROLL_AXIS_NONE;
+                if (metricsListener != null) mTouchDownTime = ev.getDownTime();
                 this.mActivePointerId = ev.getAction() & MotionEvent.ACTION_POINTER_INDEX_MASK;
                 mLastMotionX = ev.getX(this.mActivePointerId);
                 mLastMotionY = ev.getY(this.mActivePointerId);
-                toggleFlip(!mScroller.isFinished());
+                // Touching a settling page catches it where it is
+                boolean catching = mAnimating;
+                if (catching) stopFlipAnimation();
+                toggleFlip(catching);
                 break;
             case MotionEvent.ACTION_POINTER_UP:
                 onSecondaryPointerUp(ev);
@@ -257,16 +682,29 @@ public class FlipViewPager extends FrameLayout {
         return !flipping;
     }
 
-    private void checkIfChildWasClicked(MotionEvent ev, final View childView) {
-        if (childView.isClickable() && isPointInsideView(ev.getRawX(), ev.getRawY(), childView)) {
-            childView.performClick();
-        } else if (childView instanceof ViewGroup) {
-            ViewGroup viewGroup = (ViewGroup) childView;
-            for (int i = 0; i < viewGroup.getChildCount(); i++) {
-                View childChildView = viewGroup.getChildAt(i);
-                checkIfChildWasClicked(ev, childChildView);
-            }
+    /**
+     * Finds the deepest clickable view of the page under given screen point.
+     * The page itself is skipped, only the views it contains can be clicked.
+     */
+    private View findClickTarget(View page, float x, float y) {
+        if (!(page instanceof ViewGroup)) return null;
+        ViewGroup viewGroup = (ViewGroup) page;
+        // Topmost children first
+        for (int i = viewGroup.getChildCount() - 1; i >= 0; i--) {
+            View childView = viewGroup.getChildAt(i);
+            if (childView.getVisibility() != VISIBLE || !isPointInsideView(x, y, childView)) continue;
+            View target = findClickTarget(childView, x, y);
+            if (target != null) return target;
+            if (childView.isClickable()) return childView;
         }
+        return null;
+    }
+
+    private void performPendingClick(MotionEvent ev) {
+        View target = mClickTarget;
+        mClickTarget = null;
+        if (target != null && isPointInsideView(ev.getRawX(), ev.getRawY(), target))
+            target.performClick();
     }
 
     /**
@@ -278,10 +716,9 @@ public class FlipViewPager extends FrameLayout {
      * @return true if the points are within view bounds, false otherwise
      */
     private boolean isPointInsideView(float x, float y, View view) {
-        int location[] = new int[2];
-        view.getLocationOnScreen(location);
-        int viewX = location[0];
-        int viewY = location[1];
+        view.getLocationOnScreen(mLocation);
+        int viewX = mLocation[0];
+        int viewY = mLocation[1];
 
         //point is inside view bounds
         return (x > viewX && x < (viewX + view.getWidth())) &&
@@ -310,7 +747,9 @@ public class FlipViewPager extends FrameLayout {
                     float y = ev.getY(pointerIndex);
                     float yDiff = Math.abs(y - mLastMotionY);
 
-                    if (xDiff > mTouchSlop && xDiff > yDiff) {
+                    lockScrollAxis(xDiff, yDiff);
+                    if (mScrollAxis == ViewCompat.SCROLL_AXIS_HORIZONTAL && xDiff > mTouchSlop) {
+                        markFlipStart(true);
                         toggleFlip(true);
                         mLastMotionX = x;
                         mLastMotionY = y;
@@ -322,12 +761,15 @@ public class FlipViewPager extends FrameLayout {
                         mActivePointerId = INVALID_POINTER;
                         break;
                     }
-                    float deltaFlipDistance = mLastMotionX - ev.getX(activePointerIndex);
+                    float dx = mLastMotionX - ev.getX(activePointerIndex);
 
                     mLastMotionX = ev.getX(activePointerIndex);
                     mLastMotionY = ev.getY(activePointerIndex);
 
-                    deltaFlipDistance /= (getWidth() / FLIP_DISTANCE);
+                    // Scrolling parent may take part of the drag first
+                    if (dispatchNestedPreScroll((int) dx, 0, mScrollConsumed, null))
+                        dx -= mScrollConsumed[0];
+                    float deltaFlipDistance = dx / (getWidth() / FLIP_DISTANCE);
                     setFlipDistance(mFlipDistance + deltaFlipDistance);
 
                     int minFlipDistance = 0;
@@ -335,10 +777,18 @@ public class FlipViewPager extends FrameLayout {
                     boolean isOverFlipping = mFlipDistance < minFlipDistance || mFlipDistance > maxFlipDistance;
 
                     if (isOverFlipping) {
+                        float overFlipDistance = mFlipDistance
+                                - (mFlipDistance < minFlipDistance ? minFlipDistance : maxFlipDistance);
+                        if (metricsListener != null)
+                            metricsListener.onOverFlip(this, overFlipDistance);
+                        // Drag past the first or last page is left to the scrolling parent
+                        int unconsumed = (int) (overFlipDistance * (getWidth() / FLIP_DISTANCE));
+                        dispatchNestedScroll((int) dx - unconsumed, 0, unconsumed, 0, null);
                         this.overFlipping = true;
                         toggleFlip(flipping);
                         setFlipDistance(calculate(mFlipDistance, minFlipDistance, maxFlipDistance));
-                    } else if (this.overFlipping) {
+                    } else {
+                        dispatchNestedScroll((int) dx, 0, 0, 0, null);
                         this.overFlipping = false;
                     }
                 }
@@ -346,17 +796,27 @@ public class FlipViewPager extends FrameLayout {
 
             case MotionEvent.ACTION_UP:
             case MotionEvent.ACTION_CANCEL:
+                mScrollAxis = ViewCompat.SCROLL_AXIS_NONE;
+                mTouchDownTime = 0;
                 if (flipping) {
                     mVelocityTracker.computeCurrentVelocity(1000, mMaximumVelocity);
-                    flipToPage(getNextPage((int) mVelocityTracker.getXVelocity(mActivePointerId)));
+                    int velocity = (int) mVelocityTracker.getXVelocity(mActivePointerId);
+                    // Flip always settles on a page, the parent is only told about the fling
+                    if (!dispatchNestedPreFling(-velocity, 0))
+                        dispatchNestedFling(-velocity, 0, true);
+                    stopNestedScroll();
+                    flipToPage(getNextPage(velocity));
                     mActivePointerId = INVALID_POINTER;
                     mLeftEdgeEffect.onRelease();
                     mRightEdgeEffect.onRelease();
                 } else if ((action & MotionEvent.ACTION_MASK) == MotionEvent.ACTION_UP) {
+                    stopNestedScroll();
+                    performPendingClick(ev);
                     if (ev.getRawX() == mLastMotionX || ev.getRawY() == mLastMotionY) {
                         AdapterView.OnItemClickListener clickListener = null;
-                        if (getParent().getParent() instanceof ListView)
-                            clickListener = ((ListView) getParent().getParent()).getOnItemClickListener();
+                        AdapterView<?> adapterView = findAdapterViewParent();
+                        if (adapterView != null)
+                            clickListener = adapterView.getOnItemClickListener();
 
                         if (clickListener != null) {
                             if (mCurrentPageIndex == 1 && isLeftClicked(ev)) {
@@ -366,6 +826,8 @@ public class FlipViewPager extends FrameLayout {
                         }
                         return false;
                     }
+                } else {
+                    stopNestedScroll();
                 }
                 break;
             case MotionEvent.ACTION_POINTER_DOWN: {
@@ -385,6 +847,29 @@ public class FlipViewPager extends FrameLayout {
         return true;
     }
 
+    /**
+     * Locks the gesture to the axis it first moves along past touch slop. Horizontal gestures
+     * flip and are kept from scrolling parents, vertical ones are left to them.
+     */
+    private void lockScrollAxis(float xDiff, float yDiff) {
+        if (mScrollAxis != ViewCompat.SCROLL_AXIS_NONE || Math.max(xDiff, yDiff) <= mAxisSlop) return;
+        if (xDiff > yDiff) {
+            mScrollAxis = ViewCompat.SCROLL_AXIS_HORIZONTAL;
+            startNestedScroll(ViewCompat.SCROLL_AXIS_HORIZONTAL);
+            getParent().requestDisallowInterceptTouchEvent(true);
+        } else {
+            mScrollAxis = ViewCompat.SCROLL_AXIS_VERTICAL;
+        }
+    }
+
+    // Nearest ListView or other AdapterView this view is placed in, null inside RecyclerView
+    private AdapterView<?> findAdapterViewParent() {
+        ViewParent parent = getParent();
+        while (parent != null && !(parent instanceof AdapterView))
+            parent = parent.getParent();
+        return (AdapterView<?>) parent;
+    }
+
     private boolean isLeftClicked(MotionEvent ev) {
         return mLeftRect.contains((int) ev.getX(), (int) ev.getY());
     }
@@ -393,25 +878,73 @@ public class FlipViewPager extends FrameLayout {
         return mRightRect.contains((int) ev.getX(), (int) ev.getY());
     }
 
-    private void recycleActiveViews() {
-        mPrev.recycle();
-        mCurrent.recycle();
-        mNext.recycle();
+    private void attachPage(View page) {
+        if (page == null || page.getParent() == this) return;
+        ViewGroup.LayoutParams params = page.getLayoutParams();
+        if (params == null)
+            params = generateDefaultLayoutParams();
+        else if (!checkLayoutParams(params))
+            params = generateLayoutParams(params);
+        // Attaching without requestLayout(), the page is laid out right here if it fits
+        addViewInLayout(page, -1, params, true);
+        if (snapshotActive) setSnapshot(page, true);
+        if (!layoutPage(page)) requestLayout();
+        invalidate();
+    }
+
+    private void detachPage(View page) {
+        if (page.getParent() != this) return;
+        if (snapshotActive) setSnapshot(page, false);
+        removeViewInLayout(page);
+        invalidate();
+    }
+
+    /**
+     * Lays out attached page within current bounds.
+     *
+     * @return false if the page needs a full layout pass: this view wasn't laid out yet,
+     * the page uses gravity or it doesn't fit current height
+     */
+    private boolean layoutPage(View page) {
+        if (getWidth() == 0 || isLayoutRequested()) return false;
+        FrameLayout.LayoutParams params = (FrameLayout.LayoutParams) page.getLayoutParams();
+        if (params.gravity != -1) return false;
+        measureChildWithMargins(page, mWidthMeasureSpec, 0, mHeightMeasureSpec, 0);
+        int left = getPaddingLeft() + params.leftMargin;
+        int top = getPaddingTop() + params.topMargin;
+        int bottom = top + page.getMeasuredHeight();
+        if (bottom + params.bottomMargin > getHeight() - getPaddingBottom()) return false;
+        page.layout(left, top, left + page.getMeasuredWidth(), bottom);
+        return true;
     }
 
     private void toggleFlip(boolean isFlipping) {
         this.flipping = isFlipping;
+        if (isFlipping) {
+            setFlipState(FLIP_STATE_DRAGGING);
+            startSnapshots();
+        } else {
+            // Released page without an animation to settle it is drawn live again
+            if (!mAnimating) updateSnapshots(false);
+            if (mFlipState == FLIP_STATE_DRAGGING) {
+                // Released page settles on the next frame unless an animation is started
+                setFlipState(FLIP_STATE_SETTLING);
+                invalidate();
+            }
+        }
+        // Dragging page cancels the click
+        if (isFlipping) mClickTarget = null;
         // To prevent parent listview from scrolling
         getParent().requestDisallowInterceptTouchEvent(isFlipping);
     }
 
 
-    private void drawFlippingShadeShine(Canvas canvas) {
-        if (getDegreesDone() < 90) {
-            mShinePaint.setAlpha((int) ((getDegreesDone() / 90f) * FLIP_SHADE_ALPHA));
+    private void drawFlippingShadeShine(Canvas canvas, float degrees) {
+        if (mGeometry.isShine(degrees)) {
+            mShinePaint.setAlpha(mGeometry.getOverlayAlpha(degrees));
             canvas.drawRect(mRightRect, mShinePaint);
         } else {
-            mShadePaint.setAlpha((int) ((Math.abs(getDegreesDone() - 180) / 90f) * FLIP_SHADE_ALPHA));
+            mShadePaint.setAlpha(mGeometry.getOverlayAlpha(degrees));
             canvas.drawRect(mLeftRect, mShadePaint);
         }
     }
@@ -441,10 +974,7 @@ public class FlipViewPager extends FrameLayout {
     }
 
     private float getDegreesDone() {
-        float flipDistance = mFlipDistance % FLIP_DISTANCE;
-        if (flipDistance < 0)
-            flipDistance += FLIP_DISTANCE;
-        return (flipDistance / FLIP_DISTANCE) * 180;
+        return FlipGeometry.getDegreesDone(mFlipDistance, FLIP_DISTANCE);
     }
 
     private void onSecondaryPointerUp(MotionEvent ev) {
@@ -459,9 +989,9 @@ public class FlipViewPager extends FrameLayout {
         }
     }
 
-    private int getFlipDuration(int deltaFlipDistance) {
+    private int getFlipDuration(float deltaFlipDistance) {
         float distance = Math.abs(deltaFlipDistance);
-        return (int) (FLIP_ANIM_DURATION * Math.sqrt(distance / FLIP_DISTANCE));
+        return (int) (mFlipDuration * Math.sqrt(distance / FLIP_DISTANCE));
     }
 
     private int getNextPage(int velocity) {
@@ -492,6 +1022,58 @@ public class FlipViewPager extends FrameLayout {
         }
     }
 
+    // Created on first use, View's constructor may already enable nested scrolling
+    private NestedScrollingChildHelper getNestedScrollingHelper() {
+        if (mNestedScrollingHelper == null)
+            mNestedScrollingHelper = new NestedScrollingChildHelper(this);
+        return mNestedScrollingHelper;
+    }
+
+    @Override
+    public void setNestedScrollingEnabled(boolean enabled) {
+        getNestedScrollingHelper().setNestedScrollingEnabled(enabled);
+    }
+
+    @Override
+    public boolean isNestedScrollingEnabled() {
+        return getNestedScrollingHelper().isNestedScrollingEnabled();
+    }
+
+    @Override
+    public boolean startNestedScroll(int axes) {
+        return getNestedScrollingHelper().startNestedScroll(axes);
+    }
+
+    @Override
+    public void stopNestedScroll() {
+        getNestedScrollingHelper().stopNestedScroll();
+    }
+
+    @Override
+    public boolean hasNestedScrollingParent() {
+        return getNestedScrollingHelper().hasNestedScrollingParent();
+    }
+
+    @Override
+    public boolean dispatchNestedScroll(int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed, int[] offsetInWindow) {
+        return getNestedScrollingHelper().dispatchNestedScroll(dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed, offsetInWindow);
+    }
+
+    @Override
+    public boolean dispatchNestedPreScroll(int dx, int dy, int[] consumed, int[] offsetInWindow) {
+        return getNestedScrollingHelper().dispatchNestedPreScroll(dx, dy, consumed, offsetInWindow);
+    }
+
+    @Override
+    public boolean dispatchNestedFling(float velocityX, float velocityY, boolean consumed) {
+        return getNestedScrollingHelper().dispatchNestedFling(velocityX, velocityY, consumed);
+    }
+
+    @Override
+    public boolean dispatchNestedPreFling(float velocityX, float velocityY) {
+        return getNestedScrollingHelper().dispatchNestedPreFling(velocityX, velocityY);
+    }
+
     private ListAdapter adapter;
 
     public ListAdapter getAdapter() {
@@ -500,27 +1082,56 @@ public class FlipViewPager extends FrameLayout {
 
     public void setAdapter(ListAdapter adapter, int activePage, int row, int maxItems) {
         this.adapter = adapter;
+        updateSnapshots(false);
         removeAllViews();
+        // Window is filled again from scratch, so views kept by the adapter are attached again
+        mPrev.pageView = null;
+        mCurrent.pageView = null;
+        mNext.pageView = null;
+        mPageCount = adapter.getCount();
         // For case we're showing row with less items than we storing
-        if (pages.size() > adapter.getCount()) pages.clear();
-        for (int i = 0; i < adapter.getCount(); i++) {
-            PageItem item = pages.containsKey(i) ? pages.get(i) : new PageItem();
-            item.pageView = adapter.getView(i, pages.containsKey(i) ? pages.get(i).pageView : null, this);
-            pages.put(i, item);
+        for (int i = pages.size() - 1; i >= 0; i--) {
+            if (pages.keyAt(i) >= mPageCount) {
+                releasePage(pages.valueAt(i));
+                pages.removeAt(i);
+            }
         }
-        mPageCount = pages.size();
+        // Pages are bound lazily when the flip reaches them, old views are kept as convert views
+        for (int i = 0; i < pages.size(); i++)
+            pages.valueAt(i).bound = false;
         mRow = row;
         mMaxItems = maxItems;
         mCurrentPageIndex = -1;
         mFlipDistance = -1;
-        setFlipDistance(0);
-        mScroller.startScroll(0, (int) mFlipDistance, 0, (int) (activePage * FLIP_DISTANCE - mFlipDistance), getFlipDuration(0));
+        // Row shows its page right away, animation of the previous row is dropped
+        stopFlipAnimation();
+        setFlipDistance(clampPage(activePage) * FLIP_DISTANCE);
+        setFlipState(FLIP_STATE_SETTLING);
+    }
+
+    /**
+     * Shows given page immediately, without animation.
+     */
+    public void setCurrentPage(int page) {
+        endFlip();
+        stopFlipAnimation();
+        updateSnapshots(false);
+        setFlipDistance(clampPage(page) * FLIP_DISTANCE);
+        setFlipState(FLIP_STATE_SETTLING);
+        invalidate();
     }
 
     public void flipToPage(int page) {
-        int delta = page * FLIP_DISTANCE - (int) mFlipDistance;
+        markFlipStart(false);
+        // Started first, so pages released into it keep their layers
+        startFlipAnimation(clampPage(page) * FLIP_DISTANCE);
         endFlip();
-        mScroller.startScroll(0, (int) mFlipDistance, 0, delta, getFlipDuration(delta));
+        setFlipState(FLIP_STATE_SETTLING);
         invalidate();
     }
+
+    // Rows with fewer items have fewer pages, a page past the last one shows the last one
+    private int clampPage(int page) {
+        return Math.max(0, Math.min(page, mPageCount - 1));
+    }
 }
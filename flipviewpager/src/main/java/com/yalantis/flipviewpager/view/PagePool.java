@@ -0,0 +1,68 @@
+package com.yalantis.flipviewpager.view;
+
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.View;
+
+import java.util.ArrayList;
+
+/**
+ * Pool of detached page views shared between FlipViewPager instances.
+ * Views are grouped by the page type reported by the adapter's getItemViewType(),
+ * so a page can only be reused as convert view for a page of the same type.
+ *
+ * @author Yalantis
+ */
+public class PagePool {
+    public static final int DEFAULT_MAX_PAGES = 5;
+
+    private final SparseArray<ArrayList<View>> scrap = new SparseArray<>();
+    private final SparseIntArray maxPages = new SparseIntArray();
+
+    /**
+     * Sets how many detached pages of given type are kept for reuse.
+     */
+    public void setMaxRecycledPages(int viewType, int max) {
+        maxPages.put(viewType, max);
+        ArrayList<View> views = scrap.get(viewType);
+        if (views != null) {
+            while (views.size() > max) views.remove(views.size() - 1);
+        }
+    }
+
+    /**
+     * @return detached page of given type or null if there is none
+     */
+    public View getRecycledPage(int viewType) {
+        ArrayList<View> views = scrap.get(viewType);
+        if (views == null || views.isEmpty()) return null;
+        return views.remove(views.size() - 1);
+    }
+
+    /**
+     * Puts detached page into the pool, page is dropped if the pool for its type is full.
+     */
+    public void putRecycledPage(int viewType, View page) {
+        if (page == null || page.getParent() != null) return;
+        ArrayList<View> views = scrap.get(viewType);
+        if (views == null) {
+            views = new ArrayList<>();
+            scrap.put(viewType, views);
+        }
+        if (views.size() < maxPages.get(viewType, DEFAULT_MAX_PAGES)) views.add(page);
+    }
+
+    /**
+     * @return number of page views in the pool, of all types
+     */
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < scrap.size(); i++)
+            size += scrap.valueAt(i).size();
+        return size;
+    }
+
+    public void clear() {
+        scrap.clear();
+    }
+}
@@ -0,0 +1,39 @@
+package com.yalantis.flipviewpager;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Counts bytes allocated by the current thread, for tests of allocation free paths.
+ * Needs a HotSpot based JVM, which is what Gradle runs unit tests on.
+ *
+ * @author Yalantis
+ */
+public final class Allocations {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private Allocations() {
+    }
+
+    /**
+     * @return bytes allocated by the current thread so far
+     */
+    public static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * @return average bytes allocated by one run, without the cost of counting itself
+     */
+    public static long perRun(Runnable runnable, int runs) {
+        long thread = Thread.currentThread().getId();
+        long start = THREADS.getThreadAllocatedBytes(thread);
+        long overhead = THREADS.getThreadAllocatedBytes(thread) - start;
+
+        start = THREADS.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < runs; i++)
+            runnable.run();
+        long allocated = THREADS.getThreadAllocatedBytes(thread) - start - overhead;
+        return Math.max(allocated, 0) / runs;
+    }
+}
@@ -0,0 +1,86 @@
+package com.yalantis.flipviewpager.adapter;
+
+import android.app.Activity;
+import android.support.v7.widget.RecyclerView;
+
+import com.yalantis.flipviewpager.Allocations;
+import com.yalantis.flipviewpager.BuildConfig;
+import com.yalantis.flipviewpager.ShadowSharedAccessibilityManager;
+import com.yalantis.flipviewpager.utils.FlipSettings;
+import com.yalantis.flipviewpager.view.FlipViewPager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Binding a row must allocate nothing besides what FlipViewPager.setAdapter() itself does:
+ * the holder keeps its MergeAdapter and listeners and only rebinds them to new items.
+ *
+ * @author Yalantis
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, shadows = ShadowSharedAccessibilityManager.class)
+public class BaseFlipAdapterBindTest {
+    private static final int ITEMS = 100;
+    private static final int DEFAULT_PAGE = 1;
+    private static final int WARM_UP_BINDS = 2000;
+    private static final int BINDS = 5000;
+
+    private RecyclerView recyclerView;
+    private BaseFlipAdapter adapter;
+
+    @Before
+    public void setUp() {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        recyclerView = new RecyclerView(activity);
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < ITEMS; i++)
+            items.add("Item " + i);
+        adapter = new PlainPagesAdapter(activity, items, new FlipSettings.Builder().defaultPage(DEFAULT_PAGE).build(), 3);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void bindAllocatesNothingBesidesPagerSetAdapter() {
+        final BaseFlipAdapter.BaseViewHolder holder = (BaseFlipAdapter.BaseViewHolder) adapter.createViewHolder(recyclerView, 0);
+        final FlipViewPager pager = holder.mFlipViewPager;
+        Runnable bind = new Runnable() {
+            private int position;
+
+            @Override
+            public void run() {
+                position = (position + 1) % adapter.getItemCount();
+                adapter.bindViewHolder(holder, position);
+            }
+        };
+        Runnable setAdapter = new Runnable() {
+            private int position;
+
+            @Override
+            public void run() {
+                position = (position + 1) % adapter.getItemCount();
+                pager.setAdapter(pager.getAdapter(), DEFAULT_PAGE, position, ITEMS);
+            }
+        };
+        Allocations.perRun(bind, WARM_UP_BINDS);
+        Object mergeAdapter = pager.getAdapter();
+        Allocations.perRun(setAdapter, WARM_UP_BINDS);
+
+        long binding = Allocations.perRun(bind, BINDS);
+        long settingAdapter = Allocations.perRun(setAdapter, BINDS);
+        // Used to be a MergeAdapter, a page listener and a boxed position on every bind
+        assertTrue("Bind allocated " + binding + " bytes, setAdapter() " + settingAdapter,
+                binding - settingAdapter < 16);
+        assertSame(mergeAdapter, pager.getAdapter());
+    }
+}
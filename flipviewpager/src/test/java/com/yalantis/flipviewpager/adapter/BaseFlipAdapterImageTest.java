@@ -0,0 +1,83 @@
+package com.yalantis.flipviewpager.adapter;
+
+import android.app.Activity;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.widget.ImageView;
+
+import com.yalantis.flipviewpager.BuildConfig;
+import com.yalantis.flipviewpager.ShadowSharedAccessibilityManager;
+import com.yalantis.flipviewpager.utils.FlipSettings;
+import com.yalantis.flipviewpager.utils.ImageLoader;
+import com.yalantis.flipviewpager.view.FlipViewPager;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Recycled row must cancel image requests of all its pages, including the ones out of
+ * the flip window, which are detached from the row.
+ *
+ * @author Yalantis
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, shadows = ShadowSharedAccessibilityManager.class)
+public class BaseFlipAdapterImageTest {
+    private static final int PAGES = 5;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void recycledRowCancelsDetachedPages() {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        BaseFlipAdapter adapter = new PlainPagesAdapter(activity, Arrays.asList("a", "b"), new FlipSettings.Builder().build(), PAGES);
+        CancelRecorder imageLoader = new CancelRecorder();
+        adapter.setImageLoader(imageLoader);
+        BaseFlipAdapter.BaseViewHolder holder = (BaseFlipAdapter.BaseViewHolder) adapter.createViewHolder(new RecyclerView(activity), 0);
+        adapter.bindViewHolder(holder, 0);
+        FlipViewPager pager = holder.mFlipViewPager;
+        // Every page gets its view, then the window goes back to the first pages
+        pager.setCurrentPage(PAGES - 1);
+        pager.setCurrentPage(0);
+        View detachedPage = pager.getPageView(PAGES - 1);
+        assertNull(detachedPage.getParent());
+
+        adapter.onViewRecycled(holder);
+        for (int page = 0; page < PAGES; page++)
+            assertTrue("Page " + page, imageLoader.cancelled.contains(pager.getPageView(page)));
+        assertEquals(PAGES, imageLoader.cancelled.size());
+    }
+
+    private static class CancelRecorder implements ImageLoader {
+        final List<View> cancelled = new ArrayList<>();
+
+        @Override
+        public void loadResource(ImageView imageView, int resId, int targetWidth, int targetHeight) {
+        }
+
+        @Override
+        public void loadFile(ImageView imageView, File file, int targetWidth, int targetHeight) {
+        }
+
+        @Override
+        public void cancel(View root) {
+            cancelled.add(root);
+        }
+
+        @Override
+        public long trimMemory(int level) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.yalantis.flipviewpager.adapter;
+
+import android.app.Activity;
+import android.content.ComponentCallbacks2;
+import android.support.v7.widget.RecyclerView;
+import android.widget.FrameLayout;
+
+import com.yalantis.flipviewpager.BuildConfig;
+import com.yalantis.flipviewpager.ShadowSharedAccessibilityManager;
+import com.yalantis.flipviewpager.utils.FlipSettings;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The application must hold the adapter only while its RecyclerView is in a window,
+ * otherwise memory callbacks leak the Activity the adapter was created with.
+ *
+ * @author Yalantis
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, shadows = ShadowSharedAccessibilityManager.class)
+public class BaseFlipAdapterMemoryTest {
+    private FrameLayout content;
+    private RecyclerView recyclerView;
+    private BaseFlipAdapter adapter;
+    private int trims;
+
+    @Before
+    public void setUp() {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        content = new FrameLayout(activity);
+        activity.setContentView(content);
+        recyclerView = new RecyclerView(activity);
+        adapter = new PlainPagesAdapter(activity, Arrays.asList("a", "b", "c"), new FlipSettings.Builder().build(), 3);
+        adapter.setOnMemoryTrimListener(new BaseFlipAdapter.OnMemoryTrimListener() {
+            @Override
+            public void onMemoryTrimmed(int level, int views, long bytes) {
+                trims++;
+            }
+        });
+    }
+
+    @Test
+    public void memoryCallbacksFollowWindowAttachment() {
+        recyclerView.setAdapter(adapter);
+        assertTrims(0);
+
+        content.addView(recyclerView);
+        assertTrims(1);
+
+        content.removeView(recyclerView);
+        assertTrims(1);
+
+        content.addView(recyclerView);
+        assertTrims(2);
+    }
+
+    @Test
+    public void adapterAttachedInWindowRegistersAtOnce() {
+        content.addView(recyclerView);
+        recyclerView.setAdapter(adapter);
+        assertTrims(1);
+
+        recyclerView.setAdapter(null);
+        assertTrims(1);
+        // Removed adapter doesn't follow the RecyclerView anymore
+        content.removeView(recyclerView);
+        content.addView(recyclerView);
+        assertTrims(1);
+    }
+
+    private void assertTrims(int expected) {
+        RuntimeEnvironment.application.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        assertEquals(expected, trims);
+    }
+}
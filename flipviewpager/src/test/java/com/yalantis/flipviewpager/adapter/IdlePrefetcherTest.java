@@ -0,0 +1,101 @@
+package com.yalantis.flipviewpager.adapter;
+
+import android.app.Activity;
+import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
+
+import com.yalantis.flipviewpager.BuildConfig;
+import com.yalantis.flipviewpager.ShadowSharedAccessibilityManager;
+import com.yalantis.flipviewpager.utils.FlipSettings;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Rows created ahead count only when RecyclerView's pool keeps them, a full pool stops the prefetch.
+ *
+ * @author Yalantis
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, shadows = ShadowSharedAccessibilityManager.class)
+public class IdlePrefetcherTest {
+    private static final int ROW_TYPE = 0;
+    private static final int PREFETCH_ROWS = 2;
+    // RecyclerView's default pool size per view type
+    private static final int POOL_SIZE = 5;
+    private static final int MAX_IDLE_PASSES = 10;
+
+    private RecyclerView recyclerView;
+    private CountingAdapter adapter;
+    private IdlePrefetcher prefetcher;
+
+    @Before
+    public void setUp() {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        recyclerView = new RecyclerView(activity);
+        adapter = new CountingAdapter(activity);
+        prefetcher = new IdlePrefetcher(adapter);
+    }
+
+    @Test
+    public void rowsCreatedAheadStayInPool() {
+        prefetcher.attach(recyclerView);
+        runIdlePasses();
+
+        assertEquals(PREFETCH_ROWS, adapter.created);
+        for (int i = 0; i < PREFETCH_ROWS; i++)
+            assertTrue(((BaseFlipAdapter.BaseViewHolder) recyclerView.getRecycledViewPool().getRecycledView(ROW_TYPE)).prefetched);
+        assertNull(recyclerView.getRecycledViewPool().getRecycledView(ROW_TYPE));
+    }
+
+    @Test
+    public void fullPoolStopsPrefetch() {
+        RecyclerView.RecycledViewPool pool = recyclerView.getRecycledViewPool();
+        for (int i = 0; i < POOL_SIZE; i++)
+            pool.putRecycledView(adapter.createViewHolder(recyclerView, ROW_TYPE));
+        adapter.created = 0;
+
+        prefetcher.attach(recyclerView);
+        runIdlePasses();
+
+        // One row found the pool full, no more are created
+        assertEquals(1, adapter.created);
+        for (int i = 0; i < POOL_SIZE; i++)
+            assertFalse(((BaseFlipAdapter.BaseViewHolder) pool.getRecycledView(ROW_TYPE)).prefetched);
+        assertNull(pool.getRecycledView(ROW_TYPE));
+    }
+
+    // Inflating under Robolectric may take longer than an idle pass
+    private void runIdlePasses() {
+        for (int i = 0; i < MAX_IDLE_PASSES; i++) {
+            if (!prefetcher.queueIdle()) return;
+        }
+        fail("Prefetcher still has work after " + MAX_IDLE_PASSES + " idle passes");
+    }
+
+    private static class CountingAdapter extends PlainPagesAdapter {
+        int created;
+
+        CountingAdapter(Activity activity) {
+            super(activity, Arrays.asList("a", "b", "c"), new FlipSettings.Builder().build(), 3);
+        }
+
+        @Override
+        public BaseViewHolder onCreateViewHolder(ViewGroup viewGroup, int i) {
+            created++;
+            return super.onCreateViewHolder(viewGroup, i);
+        }
+    }
+}
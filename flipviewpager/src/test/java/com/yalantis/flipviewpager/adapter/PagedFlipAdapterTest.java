@@ -0,0 +1,170 @@
+package com.yalantis.flipviewpager.adapter;
+
+import android.app.Activity;
+import android.content.Context;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.yalantis.flipviewpager.BuildConfig;
+import com.yalantis.flipviewpager.ShadowSharedAccessibilityManager;
+import com.yalantis.flipviewpager.utils.FlipSettings;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Chunks which failed or came back short must leave placeholders and load again,
+ * submitList() must reload from the DataSource.
+ *
+ * @author Yalantis
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, shadows = ShadowSharedAccessibilityManager.class)
+public class PagedFlipAdapterTest {
+    private static final int ITEMS = 10;
+    private static final int CHUNK_SIZE = 4;
+    private static final int TYPE_ROW = 0;
+    private static final int TYPE_PLACEHOLDER = 1;
+    // Loads run at once, their results are posted to the main looper which runs them right away
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private RecyclerView recyclerView;
+    private TestDataSource dataSource;
+    private PagedFlipAdapter adapter;
+    private final List<RuntimeException> errors = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        recyclerView = new RecyclerView(activity);
+        dataSource = new TestDataSource();
+        adapter = new PlaceholderPagesAdapter(activity, dataSource);
+        adapter.setOnLoadErrorListener(new PagedFlipAdapter.OnLoadErrorListener() {
+            @Override
+            public void onLoadError(int start, int count, RuntimeException error) {
+                errors.add(error);
+            }
+        });
+    }
+
+    @Test
+    public void failedChunkIsLoadedAgainOnNextBind() {
+        RuntimeException error = new IllegalStateException("Offline");
+        dataSource.error = error;
+        bind(0);
+        assertEquals(1, errors.size());
+        assertSame(error, errors.get(0));
+        assertEquals(TYPE_PLACEHOLDER, adapter.getItemViewType(0));
+
+        dataSource.error = null;
+        bind(0);
+        assertEquals(TYPE_ROW, adapter.getItemViewType(0));
+        assertEquals(TYPE_ROW, adapter.getItemViewType(1));
+    }
+
+    @Test
+    public void missingItemsStayPlaceholders() {
+        dataSource.returnNull = true;
+        bind(0);
+        assertEquals(TYPE_PLACEHOLDER, adapter.getItemViewType(0));
+        assertEquals(0, errors.size());
+
+        // Only the first three items of the chunk come back, so the second row lacks its second item
+        adapter.notifyDataSourceChanged();
+        dataSource.returnNull = false;
+        dataSource.limit = 3;
+        bind(0);
+        assertEquals(TYPE_ROW, adapter.getItemViewType(0));
+        assertEquals(TYPE_PLACEHOLDER, adapter.getItemViewType(1));
+    }
+
+    @Test
+    public void lastRowOfOddListIsLoaded() {
+        dataSource.count = ITEMS - 1;
+        bind(adapter.getItemCount() - 1);
+        assertEquals(TYPE_ROW, adapter.getItemViewType(adapter.getItemCount() - 1));
+    }
+
+    @Test
+    public void submitListReloadsFromDataSource() {
+        bind(0);
+        int loads = dataSource.loads;
+        adapter.submitList(null);
+        assertEquals(TYPE_PLACEHOLDER, adapter.getItemViewType(0));
+
+        bind(0);
+        assertEquals(TYPE_ROW, adapter.getItemViewType(0));
+        assertEquals(loads + 1, dataSource.loads);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void bind(int position) {
+        BaseFlipAdapter.BaseViewHolder holder = (BaseFlipAdapter.BaseViewHolder) adapter.createViewHolder(recyclerView, adapter.getItemViewType(position));
+        adapter.bindViewHolder(holder, position);
+    }
+
+    private static class TestDataSource implements PagedFlipAdapter.DataSource {
+        int count = ITEMS;
+        int loads;
+        RuntimeException error;
+        boolean returnNull;
+        int limit = Integer.MAX_VALUE;
+
+        @Override
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public List loadRange(int start, int count) {
+            loads++;
+            if (error != null) throw error;
+            if (returnNull) return null;
+            List<String> items = new ArrayList<>();
+            for (int i = start; i < start + Math.min(count, limit); i++)
+                items.add("Item " + i);
+            return items;
+        }
+    }
+
+    private static class PlaceholderPagesAdapter extends PagedFlipAdapter {
+        private final Context context;
+
+        PlaceholderPagesAdapter(Context context, DataSource dataSource) {
+            super(context, dataSource, new FlipSettings.Builder().build(), CHUNK_SIZE, 3, DIRECT_EXECUTOR);
+            this.context = context;
+        }
+
+        @Override
+        public View createPlaceholder(ViewGroup parent) {
+            return new View(context);
+        }
+
+        @Override
+        public View getPage(int position, View convertView, ViewGroup parent, Object item1, Object item2, CloseListener closeListener) {
+            return convertView != null ? convertView : new View(context);
+        }
+
+        @Override
+        public int getPagesCount() {
+            return 3;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.yalantis.flipviewpager.adapter;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.yalantis.flipviewpager.utils.FlipSettings;
+
+import java.util.List;
+
+/**
+ * Adapter whose pages are plain views, reused as convertView.
+ * Robolectric's TextView.setText() slows down with every call, so pages show nothing.
+ *
+ * @author Yalantis
+ */
+class PlainPagesAdapter extends BaseFlipAdapter {
+    private final Context context;
+    private final int pagesCount;
+
+    PlainPagesAdapter(Context context, List items, FlipSettings settings, int pagesCount) {
+        super(context, items, settings);
+        this.context = context;
+        this.pagesCount = pagesCount;
+    }
+
+    @Override
+    public View getPage(int position, View convertView, ViewGroup parent, Object item1, Object item2, CloseListener closeListener) {
+        return convertView != null ? convertView : new View(context);
+    }
+
+    @Override
+    public int getPagesCount() {
+        return pagesCount;
+    }
+}
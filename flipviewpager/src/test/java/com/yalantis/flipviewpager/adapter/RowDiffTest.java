@@ -0,0 +1,195 @@
+package com.yalantis.flipviewpager.adapter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Row operations of RowDiff are replayed on the old rows, which must turn them into the new rows.
+ *
+ * @author Yalantis
+ */
+public class RowDiffTest {
+    // Items are strings, the part before ':' is the id and the rest is the content
+    private static final RowDiff.Callback CALLBACK = new RowDiff.Callback() {
+        @Override
+        public long getRowId(Object item1, Object item2) {
+            return id(item1) * 31 + id(item2);
+        }
+
+        @Override
+        public boolean areItemsTheSame(Object oldItem, Object newItem) {
+            return oldItem.equals(newItem);
+        }
+
+        private long id(Object item) {
+            return item == null ? 0 : ((String) item).split(":")[0].hashCode();
+        }
+    };
+
+    @Test
+    public void sameListsGiveNoOperations() {
+        Replay replay = replay(list("a", "b", "c", "d", "e"), list("a", "b", "c", "d", "e"));
+        assertEquals(0, replay.operations);
+    }
+
+    @Test
+    public void itemInsertedAtStartShiftsAllPairs() {
+        Replay replay = replay(list("a", "b", "c", "d", "e", "f"), list("x", "a", "b", "c", "d", "e", "f"));
+        // Every row pairs other items now, rows are rebound in place and one row is added at the end
+        assertEquals(0, replay.removed);
+        assertEquals(1, replay.inserted);
+        assertEquals(3, replay.changed);
+    }
+
+    @Test
+    public void movedRowsAreMovedNotRecreated() {
+        Replay replay = replay(list("a", "b", "c", "d", "e", "f", "g", "h"), list("g", "h", "c", "d", "e", "f", "a", "b"));
+        assertEquals(0, replay.inserted);
+        assertEquals(0, replay.removed);
+        assertEquals(0, replay.changed);
+        assertTrue(replay.moved > 0);
+    }
+
+    @Test
+    public void editedItemChangesOnlyItsHalf() {
+        Replay replay = replay(list("a", "b", "c", "d"), list("a", "b", "c", "d:edited"));
+        assertEquals(1, replay.operations);
+        assertEquals(BaseFlipAdapter.ITEM_RIGHT, replay.lastChangedItems);
+    }
+
+    @Test
+    public void duplicateRowIds() {
+        replay(list("a", "b", "a", "b", "c", "d"), list("c", "d", "a", "b", "a", "b"));
+        replay(list("a", "b", "a", "b", "a", "b"), list("a", "b"));
+        replay(list("a", "b"), list("a", "b", "a", "b:edited", "a", "b"));
+    }
+
+    @Test
+    public void oddTail() {
+        Replay grown = replay(list("a", "b", "c"), list("a", "b", "c", "d"));
+        assertEquals(1, grown.operations);
+        assertEquals(BaseFlipAdapter.ITEM_RIGHT, grown.lastChangedItems);
+
+        Replay shrunk = replay(list("a", "b", "c", "d"), list("a", "b", "c"));
+        assertEquals(1, shrunk.operations);
+        assertEquals(BaseFlipAdapter.ITEM_RIGHT, shrunk.lastChangedItems);
+
+        Replay removed = replay(list("a", "b", "c"), list("a", "b"));
+        assertEquals(1, removed.removed);
+        assertEquals(1, removed.operations);
+    }
+
+    @Test
+    public void emptyLists() {
+        assertEquals(2, replay(list(), list("a", "b", "c")).inserted);
+        assertEquals(2, replay(list("a", "b", "c"), list()).removed);
+    }
+
+    @Test
+    public void randomLists() {
+        // Few distinct ids and contents, so lists share rows, repeat them and edit them
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++)
+            replay(randomList(random), randomList(random));
+    }
+
+    private static List<String> randomList(Random random) {
+        int size = random.nextInt(13);
+        List<String> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            list.add((char) ('a' + random.nextInt(5)) + (random.nextInt(4) == 0 ? ":edited" : ""));
+        return list;
+    }
+
+    private static List<String> list(String... items) {
+        return Arrays.asList(items);
+    }
+
+    private static Replay replay(List<String> oldItems, List<String> newItems) {
+        Replay replay = new Replay(oldItems, newItems);
+        RowDiff.calculate(oldItems, newItems, CALLBACK).dispatchTo(replay);
+        assertEquals(oldItems + " -> " + newItems, replay.newRows, replay.rows);
+        return replay;
+    }
+
+    private static List<List<String>> rows(List<String> items) {
+        List<List<String>> rows = new ArrayList<>();
+        for (int i = 0; i < items.size(); i += 2)
+            rows.add(items.subList(i, Math.min(i + 2, items.size())));
+        return rows;
+    }
+
+    /**
+     * Applies operations to the old rows the way RecyclerView applies notifications, inserted
+     * and changed rows take the content of the new row at their position.
+     */
+    private static class Replay implements RowDiff.Receiver {
+        final List<List<String>> rows;
+        final List<List<String>> newRows;
+        int operations;
+        int inserted;
+        int removed;
+        int moved;
+        int changed;
+        int lastChangedItems;
+
+        Replay(List<String> oldItems, List<String> newItems) {
+            rows = rows(oldItems);
+            newRows = rows(newItems);
+        }
+
+        @Override
+        public void onRowsInserted(int row, int count) {
+            operations++;
+            inserted += count;
+            for (int i = row; i < row + count; i++)
+                rows.add(i, newRows.get(i));
+        }
+
+        @Override
+        public void onRowsRemoved(int row, int count) {
+            operations++;
+            removed += count;
+            for (int i = 0; i < count; i++)
+                rows.remove(row);
+        }
+
+        @Override
+        public void onRowMoved(int fromRow, int toRow) {
+            operations++;
+            moved++;
+            rows.add(toRow, rows.remove(fromRow));
+        }
+
+        @Override
+        public void onRowsChanged(int row, int count, int changedItems) {
+            operations++;
+            changed += count;
+            lastChangedItems = changedItems;
+            for (int i = row; i < row + count; i++) {
+                assertEquals(changedItems(rows.get(i), newRows.get(i)), changedItems);
+                rows.set(i, newRows.get(i));
+            }
+        }
+
+        private static int changedItems(List<String> oldRow, List<String> newRow) {
+            int changedItems = 0;
+            if (!item(oldRow, 0).equals(item(newRow, 0)))
+                changedItems |= BaseFlipAdapter.ITEM_LEFT;
+            if (!item(oldRow, 1).equals(item(newRow, 1)))
+                changedItems |= BaseFlipAdapter.ITEM_RIGHT;
+            return changedItems;
+        }
+
+        private static String item(List<String> row, int index) {
+            return index < row.size() ? row.get(index) : "";
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.yalantis.flipviewpager.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * FlipGeometry must give the flip FlipViewPager drew before with android.graphics.Camera:
+ * rotation around the Y axis projected from the camera distance, scaled down 4 times around
+ * the page center, and shade alpha linear in the angle. Camera and Matrix are no-ops under
+ * Robolectric, so the expected matrices are that projection written out, not Camera output.
+ *
+ * @author Yalantis
+ */
+public class FlipGeometryTest {
+    private static final int WIDTH = 480;
+    private static final int HEIGHT = 240;
+    private static final int MAX_SHADE_ALPHA = 130;
+    private static final float CAMERA_DISTANCE = 8 * 72;
+
+    private FlipGeometry geometry;
+
+    @Before
+    public void setUp() {
+        geometry = new FlipGeometry(MAX_SHADE_ALPHA);
+        geometry.setSize(WIDTH, HEIGHT);
+    }
+
+    @Test
+    public void matrixIsProjectedRotationScaledAroundCenter() {
+        for (float degrees : new float[]{0, 45, 90, 135, 180})
+            assertMatrix(degrees, projectedRotation(degrees, WIDTH, HEIGHT), geometry.getMatrix(degrees));
+    }
+
+    @Test
+    public void overlayAlphaGrowsTowardsUprightHalf() {
+        assertEquals(0, geometry.getOverlayAlpha(0));
+        assertEquals(65, geometry.getOverlayAlpha(45));
+        assertEquals(130, geometry.getOverlayAlpha(90));
+        assertEquals(65, geometry.getOverlayAlpha(135));
+        assertEquals(0, geometry.getOverlayAlpha(180));
+    }
+
+    @Test
+    public void flippingHalfAndOverlay() {
+        assertTrue(geometry.isShine(45));
+        assertFalse(geometry.isFlippingLeft(45));
+        assertFalse(geometry.isShine(135));
+        assertTrue(geometry.isFlippingLeft(135));
+    }
+
+    @Test
+    public void degreesDone() {
+        assertEquals(0, FlipGeometry.getDegreesDone(360, 180), 0);
+        assertEquals(90, FlipGeometry.getDegreesDone(270, 180), 0);
+        // Over-flip before the first page
+        assertEquals(135, FlipGeometry.getDegreesDone(-45, 180), 0);
+    }
+
+    @Test
+    public void matricesAreCachedUntilSizeChanges() {
+        float[] matrix = geometry.getMatrix(45);
+        assertSame(matrix, geometry.getMatrix(45));
+        // Same step of the cache
+        assertSame(matrix, geometry.getMatrix(45.1f));
+
+        geometry.setSize(WIDTH, HEIGHT);
+        assertSame(matrix, geometry.getMatrix(45));
+
+        geometry.setSize(WIDTH * 2, HEIGHT);
+        float[] resized = geometry.getMatrix(45);
+        assertNotSame(matrix, resized);
+        assertMatrix(45, projectedRotation(45, WIDTH * 2, HEIGHT), resized);
+    }
+
+    private static void assertMatrix(float degrees, float[] expected, float[] actual) {
+        // Translation is in pixels, perspective in fractions of a pixel
+        for (int i = 0; i < 9; i++) {
+            float delta = Math.max(Math.abs(expected[i]) * 1e-4f, 1e-7f);
+            assertEquals("Value " + i + " at " + degrees + " degrees", expected[i], actual[i], delta);
+        }
+    }
+
+    /**
+     * Rotation around the Y axis projected from CAMERA_DISTANCE, as Camera.rotateY() gives it,
+     * then preScale(0.25), postScale(4), preTranslate(-center) and postTranslate(center)
+     * as FlipViewPager applied them.
+     */
+    private static float[] projectedRotation(float degrees, int width, int height) {
+        double rotation = Math.toRadians(degrees > 90 ? 180 - degrees : -degrees);
+        float[] matrix = {
+                (float) Math.cos(rotation), 0, 0,
+                0, 1, 0,
+                (float) -Math.sin(rotation) / CAMERA_DISTANCE, 0, 1};
+        matrix = multiply(matrix, scale(0.25f));
+        matrix = multiply(scale(4), matrix);
+        matrix = multiply(matrix, translate(-width / 2, -height / 2));
+        matrix = multiply(translate(width / 2, height / 2), matrix);
+        return matrix;
+    }
+
+    private static float[] scale(float scale) {
+        return new float[]{scale, 0, 0, 0, scale, 0, 0, 0, 1};
+    }
+
+    private static float[] translate(float dx, float dy) {
+        return new float[]{1, 0, dx, 0, 1, dy, 0, 0, 1};
+    }
+
+    private static float[] multiply(float[] a, float[] b) {
+        float[] result = new float[9];
+        for (int row = 0; row < 3; row++) {
+            for (int column = 0; column < 3; column++) {
+                for (int i = 0; i < 3; i++)
+                    result[row * 3 + column] += a[row * 3 + i] * b[i * 3 + column];
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,104 @@
+package com.yalantis.flipviewpager.utils;
+
+import android.os.Parcel;
+
+import com.yalantis.flipviewpager.Allocations;
+import com.yalantis.flipviewpager.BuildConfig;
+import com.yalantis.flipviewpager.ShadowSharedAccessibilityManager;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Bounded store must forget the least recently used row, keep that order through row shifts,
+ * copies and parceling, and shift rows without allocating.
+ *
+ * @author Yalantis
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, shadows = ShadowSharedAccessibilityManager.class)
+public class PageStateStoreTest {
+    private static final int NONE = -1;
+    private static final int SHIFTS = 2000;
+
+    @Test
+    public void leastRecentlyUsedRowIsForgotten() {
+        PageStateStore store = new PageStateStore(3);
+        store.put(0, 2);
+        store.put(1, 2);
+        store.put(2, 2);
+        // Row 0 becomes the most recently used one
+        store.get(0, NONE);
+        store.put(3, 2);
+
+        assertEquals(3, store.size());
+        assertEquals(NONE, store.get(1, NONE));
+        assertEquals(2, store.get(0, NONE));
+        assertEquals(2, store.get(3, NONE));
+    }
+
+    @Test
+    public void shiftedRowsKeepPagesAndUsageOrder() {
+        PageStateStore store = new PageStateStore(3);
+        store.put(5, 0);
+        store.put(1, 2);
+        store.put(9, 3);
+        store.insertRows(0, 2);
+        store.removeRows(3, 1);
+        store.moveRow(10, 0);
+
+        // Row 1 was removed, row 5 went to 7 and row 9 to 0
+        assertEquals(2, store.size());
+        assertEquals(0, store.get(7, NONE));
+        assertEquals(3, store.get(0, NONE));
+        // Row 7 is the least recently used one
+        store.put(20, 1);
+        store.put(21, 1);
+        assertEquals(NONE, store.get(7, NONE));
+        assertEquals(3, store.get(0, NONE));
+    }
+
+    @Test
+    public void parcelKeepsUsageOrder() {
+        PageStateStore store = new PageStateStore(2);
+        store.put(4, 0);
+        store.put(7, 2);
+        store.get(4, NONE);
+
+        Parcel parcel = Parcel.obtain();
+        store.copy().writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+        PageStateStore restored = PageStateStore.CREATOR.createFromParcel(parcel);
+        parcel.recycle();
+
+        restored.put(8, 3);
+        assertEquals(NONE, restored.get(7, NONE));
+        assertEquals(0, restored.get(4, NONE));
+        assertEquals(3, restored.get(8, NONE));
+    }
+
+    @Test
+    public void shiftingRowsAllocatesNothing() {
+        final PageStateStore store = new PageStateStore(0);
+        for (int row = 0; row < 100; row++)
+            store.put(row * 3, 2);
+        Runnable shift = new Runnable() {
+            @Override
+            public void run() {
+                store.insertRows(10, 1);
+                store.moveRow(10, 50);
+                store.removeRows(50, 1);
+                store.get(0, NONE);
+            }
+        };
+        Allocations.perRun(shift, SHIFTS);
+        long bytes = Allocations.perRun(shift, SHIFTS);
+        assertTrue("Shifting rows allocated " + bytes + " bytes", bytes == 0);
+        assertEquals(100, store.size());
+    }
+}
@@ -0,0 +1,209 @@
+package com.yalantis.flipviewpager.view;
+
+import android.app.Activity;
+import android.view.MotionEvent;
+
+import com.yalantis.flipviewpager.BuildConfig;
+import com.yalantis.flipviewpager.ShadowSharedAccessibilityManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Collections;
+import java.util.List;
+
+import static com.yalantis.flipviewpager.view.FlipViewPager.FLIP_DISTANCE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Standard gestures replayed frame by frame: where the flip settles, how the distance moves
+ * on the way and what every frame costs.
+ *
+ * @author Yalantis
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, shadows = ShadowSharedAccessibilityManager.class)
+public class FlipViewPagerGestureTest {
+    // Two pixels of drag per degree of flip
+    private static final int WIDTH = 2 * FLIP_DISTANCE;
+    private static final int HEIGHT = 200;
+    private static final int PAGES = 5;
+    private static final int MIDDLE_PAGE = 2;
+    // Largest step of the flip distance in a frame of the slowest flip animation
+    private static final float MAX_FRAME_STEP = FLIP_DISTANCE / 4;
+    private static final List<MotionEvent> NO_EVENTS = Collections.emptyList();
+
+    private Activity activity;
+
+    @Before
+    public void setUp() {
+        activity = Robolectric.setupActivity(Activity.class);
+    }
+
+    @Test
+    public void slowDragPastHalfPageSettlesOnNextPage() {
+        List<GestureReplay.Frame> frames = replay(MIDDLE_PAGE, Gestures.slowDrag(WIDTH, HEIGHT, -280));
+        assertSettled(MIDDLE_PAGE + 1, frames);
+        assertNeverMovesBack(frames);
+    }
+
+    @Test
+    public void slowDragUnderHalfPageReturns() {
+        List<GestureReplay.Frame> frames = replay(MIDDLE_PAGE, Gestures.slowDrag(WIDTH, HEIGHT, 120));
+        assertSettled(MIDDLE_PAGE, frames);
+        assertTrue(minDistance(frames) < MIDDLE_PAGE * FLIP_DISTANCE);
+    }
+
+    @Test
+    public void fastFlingFlipsEvenUnderHalfPage() {
+        assertSettled(MIDDLE_PAGE + 1, replay(MIDDLE_PAGE, Gestures.fastFling(WIDTH, HEIGHT, -120)));
+        assertSettled(MIDDLE_PAGE - 1, replay(MIDDLE_PAGE, Gestures.fastFling(WIDTH, HEIGHT, 120)));
+    }
+
+    @Test
+    public void secondPointerTakesOverWithoutJumps() {
+        List<GestureReplay.Frame> frames = replay(MIDDLE_PAGE, Gestures.multiPointer(WIDTH, HEIGHT, -320));
+        assertSettled(MIDDLE_PAGE + 1, frames);
+        assertNeverMovesBack(frames);
+        assertSmooth(frames);
+    }
+
+    @Test
+    public void overFlipStaysOnFirstPage() {
+        List<GestureReplay.Frame> frames = replay(0, Gestures.overFlip(WIDTH, HEIGHT, 200));
+        assertSettled(0, frames);
+        int overFlips = 0;
+        for (GestureReplay.Frame frame : frames) {
+            assertEquals(frame.toString(), 0, frame.flipDistance, 0);
+            overFlips += frame.overFlips;
+        }
+        assertTrue(overFlips > 0);
+    }
+
+    @Test
+    public void overFlipStaysOnLastPage() {
+        List<GestureReplay.Frame> frames = replay(PAGES - 1, Gestures.overFlip(WIDTH, HEIGHT, -200));
+        assertSettled(PAGES - 1, frames);
+        for (GestureReplay.Frame frame : frames)
+            assertEquals(frame.toString(), (PAGES - 1) * FLIP_DISTANCE, frame.flipDistance, 0);
+    }
+
+    @Test
+    public void pagesPastLastOneShowLastOne() {
+        GestureReplay replay = new GestureReplay(activity, WIDTH, HEIGHT, PAGES, PAGES + 1);
+        assertSettled(PAGES - 1, replay.replay(NO_EVENTS));
+
+        replay.pager.setCurrentPage(-1);
+        assertSettled(0, replay.replay(NO_EVENTS));
+
+        replay.pager.flipToPage(PAGES);
+        assertSettled(PAGES - 1, replay.replay(NO_EVENTS));
+    }
+
+    @Test
+    public void pagesAreBoundOnceWhenReached() {
+        GestureReplay replay = new GestureReplay(activity, WIDTH, HEIGHT, PAGES, 0);
+        int binds = 0;
+        for (int page = 1; page < PAGES; page++)
+            binds += sum(replay.replay(Gestures.slowDrag(WIDTH, HEIGHT, -280)));
+        // Every page is bound once when it's next to the current one, setAdapter() bound the first two
+        assertEquals(PAGES - 2, binds);
+        for (int page = PAGES - 1; page > 0; page--)
+            assertEquals(0, sum(replay.replay(Gestures.fastFling(WIDTH, HEIGHT, 120))));
+        assertEquals(0, replay.pager.getCurrentPageIndex());
+    }
+
+    @Test
+    public void snapshotLayersLastFromFlipStartToSettle() {
+        GestureReplay replay = new GestureReplay(activity, WIDTH, HEIGHT, PAGES, MIDDLE_PAGE);
+        replay.pager.setSnapshotEnabled(true);
+        // Replay fails if a layer is switched while drawing
+        for (Gesture gesture : new Gesture[]{Gestures.slowDrag(WIDTH, HEIGHT, -280), Gestures.fastFling(WIDTH, HEIGHT, 120)}) {
+            List<GestureReplay.Frame> frames = replay.replay(gesture);
+            for (GestureReplay.Frame frame : frames) {
+                if (frame.flipState == FlipViewPager.FLIP_STATE_DRAGGING)
+                    assertTrue(frame.toString(), frame.snapshot);
+            }
+            assertFalse(frames.get(frames.size() - 1).snapshot);
+        }
+    }
+
+    @Test
+    public void replayIsDeterministic() {
+        Gesture gesture = Gestures.multiPointer(WIDTH, HEIGHT, -320);
+        List<GestureReplay.Frame> first = replay(MIDDLE_PAGE, gesture);
+        List<GestureReplay.Frame> second = replay(MIDDLE_PAGE, gesture);
+        assertEquals(first.size(), second.size());
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(first.get(i).flipDistance, second.get(i).flipDistance, 0);
+            assertEquals(first.get(i).page, second.get(i).page);
+        }
+    }
+
+    @Test
+    public void dragAndSettleFramesAllocateNothing() {
+        // Used to be a copy of the running animations on every frame
+        GestureReplay replay = new GestureReplay(activity, WIDTH, HEIGHT, PAGES, MIDDLE_PAGE);
+        Gesture forward = Gestures.slowDrag(WIDTH, HEIGHT, -280);
+        Gesture back = Gestures.fastFling(WIDTH, HEIGHT, 120);
+        // First gestures bind pages and load classes
+        replay.replay(forward);
+        replay.replay(back);
+        for (Gesture gesture : new Gesture[]{forward, back}) {
+            int page = -1;
+            for (GestureReplay.Frame frame : replay.replay(gesture)) {
+                // Touch down and up start and end a gesture, frames between them and after are measured
+                boolean downOrUp = frame.timeMs == GestureReplay.FRAME_MS
+                        || frame.timeMs == gesture.getDuration() + GestureReplay.FRAME_MS;
+                // Views added and removed when the flip crosses to another page are left to the framework
+                if (!downOrUp && frame.page == page)
+                    assertTrue(gesture + " " + frame, frame.bytes < 16);
+                page = frame.page;
+            }
+        }
+    }
+
+    private List<GestureReplay.Frame> replay(int page, Gesture gesture) {
+        return new GestureReplay(activity, WIDTH, HEIGHT, PAGES, page).replay(gesture);
+    }
+
+    private static void assertSettled(int page, List<GestureReplay.Frame> frames) {
+        GestureReplay.Frame last = frames.get(frames.size() - 1);
+        assertEquals(last.toString(), FlipViewPager.FLIP_STATE_IDLE, last.flipState);
+        assertEquals(last.toString(), page, last.page);
+        assertEquals(last.toString(), page * FLIP_DISTANCE, last.flipDistance, 0);
+    }
+
+    // Gesture going one way must never flip the other way, neither by the drag nor the settling
+    private static void assertNeverMovesBack(List<GestureReplay.Frame> frames) {
+        for (int i = 1; i < frames.size(); i++)
+            assertTrue(frames.get(i).toString(), frames.get(i).flipDistance >= frames.get(i - 1).flipDistance);
+    }
+
+    private static void assertSmooth(List<GestureReplay.Frame> frames) {
+        for (int i = 1; i < frames.size(); i++) {
+            float step = Math.abs(frames.get(i).flipDistance - frames.get(i - 1).flipDistance);
+            assertTrue(frames.get(i).toString(), step <= MAX_FRAME_STEP);
+        }
+    }
+
+    private static float minDistance(List<GestureReplay.Frame> frames) {
+        float min = Float.MAX_VALUE;
+        for (GestureReplay.Frame frame : frames)
+            min = Math.min(min, frame.flipDistance);
+        return min;
+    }
+
+    private static int sum(List<GestureReplay.Frame> frames) {
+        int binds = 0;
+        for (GestureReplay.Frame frame : frames)
+            binds += frame.binds;
+        return binds;
+    }
+}
@@ -0,0 +1,165 @@
+package com.yalantis.flipviewpager.view;
+
+import android.app.Activity;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.FrameLayout;
+
+import com.yalantis.flipviewpager.Allocations;
+import com.yalantis.flipviewpager.BuildConfig;
+import com.yalantis.flipviewpager.ShadowSharedAccessibilityManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Touch handling must not allocate or scan the page per event: the clickable view under
+ * the finger is found once on ACTION_DOWN and checked once on ACTION_UP.
+ *
+ * @author Yalantis
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, shadows = ShadowSharedAccessibilityManager.class)
+public class FlipViewPagerTouchTest {
+    private static final int WIDTH = 400;
+    private static final int HEIGHT = 200;
+    private static final int BUTTON_SIZE = 20;
+    // Grid of buttons covering the whole page
+    private static final int DENSE_BUTTONS = (WIDTH / BUTTON_SIZE) * (HEIGHT / BUTTON_SIZE);
+    // Moves are kept within touch slop, so the gesture never flips
+    private static final int MOVES_PER_GESTURE = 10;
+    private static final int WARM_UP_GESTURES = 200;
+    private static final int GESTURES = 500;
+
+    private Activity activity;
+
+    @Before
+    public void setUp() {
+        // Pages are attached to a window, so they have screen locations
+        activity = Robolectric.setupActivity(Activity.class);
+    }
+
+    @Test
+    public void denseAndSparsePagesAllocateTheSamePerGesture() {
+        long sparse = bytesPerGesture(createPage(1));
+        long dense = bytesPerGesture(createPage(DENSE_BUTTONS));
+        // Every visited view used to cost an int[2] on every event
+        assertTrue("Dense page allocated " + dense + " bytes per gesture, sparse one " + sparse,
+                dense - sparse < 16);
+    }
+
+    @Test
+    public void clickIsDeliveredToTheButtonUnderTheFinger() {
+        final int[] clicks = new int[DENSE_BUTTONS];
+        ViewGroup page = createPage(DENSE_BUTTONS);
+        for (int i = 0; i < DENSE_BUTTONS; i++) {
+            final int button = i;
+            page.getChildAt(i).setOnClickListener(new View.OnClickListener() {
+                @Override
+                public void onClick(View v) {
+                    clicks[button]++;
+                }
+            });
+        }
+        FlipViewPager pager = createPager(page);
+        replay(pager, createGesture(pager, true));
+
+        assertEquals(1, clicks[0]);
+        for (int i = 1; i < DENSE_BUTTONS; i++)
+            assertEquals(0, clicks[i]);
+    }
+
+    private long bytesPerGesture(ViewGroup page) {
+        final FlipViewPager pager = createPager(page);
+        // Finger slides off the button before it's lifted, clicks themselves aren't measured
+        final MotionEvent[] gesture = createGesture(pager, false);
+        Runnable replay = new Runnable() {
+            @Override
+            public void run() {
+                replay(pager, gesture);
+            }
+        };
+        Allocations.perRun(replay, WARM_UP_GESTURES);
+        return Allocations.perRun(replay, GESTURES);
+    }
+
+    // Pager intercepts the gesture on ACTION_DOWN, so the rest of it goes to onTouchEvent() as on a device
+    private static void replay(FlipViewPager pager, MotionEvent[] gesture) {
+        for (MotionEvent event : gesture)
+            pager.dispatchTouchEvent(event);
+    }
+
+    // Gesture over the button drawn first, so the hit test has to visit all buttons above it
+    private static MotionEvent[] createGesture(FlipViewPager pager, boolean click) {
+        // Hit test works with screen coordinates, events are created in them
+        int[] origin = new int[2];
+        pager.getLocationOnScreen(origin);
+        float x = origin[0] + BUTTON_SIZE / 2;
+        float y = origin[1] + BUTTON_SIZE / 2;
+        float upX = click ? x : x + BUTTON_SIZE;
+        long downTime = SystemClock.uptimeMillis();
+        MotionEvent[] gesture = new MotionEvent[MOVES_PER_GESTURE + 2];
+        gesture[0] = MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_DOWN, x, y, 0);
+        for (int i = 1; i <= MOVES_PER_GESTURE; i++)
+            gesture[i] = MotionEvent.obtain(downTime, downTime + i * 10, MotionEvent.ACTION_MOVE, x + i % 2, y, 0);
+        gesture[MOVES_PER_GESTURE + 1] = MotionEvent.obtain(downTime, downTime + (MOVES_PER_GESTURE + 1) * 10,
+                MotionEvent.ACTION_UP, upX, y, 0);
+        return gesture;
+    }
+
+    private ViewGroup createPage(int buttons) {
+        FrameLayout page = new FrameLayout(activity);
+        int columns = WIDTH / BUTTON_SIZE;
+        for (int i = 0; i < buttons; i++) {
+            View button = new View(activity);
+            button.setClickable(true);
+            FrameLayout.LayoutParams params = new FrameLayout.LayoutParams(BUTTON_SIZE, BUTTON_SIZE);
+            params.leftMargin = (i % columns) * BUTTON_SIZE;
+            params.topMargin = (i / columns) * BUTTON_SIZE;
+            page.addView(button, params);
+        }
+        return page;
+    }
+
+    private FlipViewPager createPager(final View page) {
+        FrameLayout parent = new FrameLayout(activity);
+        FlipViewPager pager = new FlipViewPager(activity, null);
+        parent.addView(pager, new FrameLayout.LayoutParams(WIDTH, HEIGHT));
+        activity.setContentView(parent);
+        pager.setAdapter(new BaseAdapter() {
+            @Override
+            public int getCount() {
+                return 1;
+            }
+
+            @Override
+            public Object getItem(int position) {
+                return position;
+            }
+
+            @Override
+            public long getItemId(int position) {
+                return position;
+            }
+
+            @Override
+            public View getView(int position, View convertView, ViewGroup parent) {
+                return page;
+            }
+        }, 0, 0, 1);
+        parent.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        parent.layout(0, 0, WIDTH, HEIGHT);
+        return pager;
+    }
+}
@@ -0,0 +1,134 @@
+package com.yalantis.flipviewpager.view;
+
+import android.view.MotionEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Touch trace of up to two pointers, with event times relative to the first touch.
+ * Moves are sent once per frame, as touch screens report them.
+ *
+ * @author Yalantis
+ */
+final class Gesture {
+    static final long MOVE_INTERVAL_MS = GestureReplay.FRAME_MS;
+    // Pointer id no event of a trace uses
+    private static final int NO_POINTER = 99;
+
+    final String name;
+    private final List<Touch> touches = new ArrayList<>();
+    // Pointers down at the end of the trace, in pointer index order
+    private final List<float[]> pointers = new ArrayList<>();
+    private int nextPointerId;
+    private long time;
+
+    Gesture(String name) {
+        this.name = name;
+    }
+
+    Gesture down(float x, float y) {
+        pointers.add(new float[]{nextPointerId++, x, y});
+        return add(MotionEvent.ACTION_DOWN, 0);
+    }
+
+    /**
+     * Second finger touches down, it drives the flip from now on.
+     */
+    Gesture pointerDown(float x, float y) {
+        pointers.add(new float[]{nextPointerId++, x, y});
+        return add(MotionEvent.ACTION_POINTER_DOWN, pointers.size() - 1);
+    }
+
+    /**
+     * Finger with given pointer index is lifted while another one stays down.
+     */
+    Gesture pointerUp(int index) {
+        add(MotionEvent.ACTION_POINTER_UP, index);
+        pointers.remove(index);
+        return this;
+    }
+
+    /**
+     * Moves all pointers by given distance with a constant speed over given time.
+     */
+    Gesture drag(float dx, long durationMs) {
+        long steps = Math.max(1, durationMs / MOVE_INTERVAL_MS);
+        for (int i = 0; i < steps; i++) {
+            time += MOVE_INTERVAL_MS;
+            for (float[] pointer : pointers)
+                pointer[1] += dx / steps;
+            add(MotionEvent.ACTION_MOVE, 0);
+        }
+        return this;
+    }
+
+    /**
+     * Keeps pointers still, so the release velocity decays to zero.
+     */
+    Gesture hold(long durationMs) {
+        return drag(0, durationMs);
+    }
+
+    Gesture up() {
+        time += MOVE_INTERVAL_MS;
+        add(MotionEvent.ACTION_UP, 0);
+        pointers.clear();
+        return this;
+    }
+
+    long getDuration() {
+        return time;
+    }
+
+    /**
+     * Creates events of the trace for a gesture started at given uptime.
+     */
+    List<MotionEvent> obtainEvents(long downTime) {
+        List<MotionEvent> events = new ArrayList<>(touches.size());
+        for (Touch touch : touches) {
+            MotionEvent event = MotionEvent.obtain(downTime, downTime + touch.time, touch.action,
+                    touch.x[0], touch.y[0], 0);
+            if (touch.x.length > 1) shadowOf(event).setPointer2(touch.x[1], touch.y[1]);
+            shadowOf(event).setPointerIds(touch.ids[0], touch.x.length > 1 ? touch.ids[1] : NO_POINTER);
+            shadowOf(event).setPointerIndex(touch.index);
+            events.add(event);
+        }
+        return events;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private Gesture add(int action, int index) {
+        touches.add(new Touch(time, action | (index << MotionEvent.ACTION_POINTER_INDEX_SHIFT), index, pointers));
+        return this;
+    }
+
+    private static class Touch {
+        final long time;
+        final int action;
+        final int index;
+        final int[] ids;
+        final float[] x;
+        final float[] y;
+
+        Touch(long time, int action, int index, List<float[]> pointers) {
+            this.time = time;
+            this.action = action;
+            this.index = index;
+            ids = new int[pointers.size()];
+            x = new float[pointers.size()];
+            y = new float[pointers.size()];
+            for (int i = 0; i < pointers.size(); i++) {
+                ids[i] = (int) pointers.get(i)[0];
+                x[i] = pointers.get(i)[1];
+                y[i] = pointers.get(i)[2];
+            }
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.yalantis.flipviewpager.view;
+
+import android.app.Activity;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.VelocityTracker;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.FrameLayout;
+
+import com.yalantis.flipviewpager.Allocations;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.fail;
+
+/**
+ * Replays touch gestures on a FlipViewPager frame by frame. Time only moves when the replay
+ * steps it: every frame delivers the events due by then, advances the flip animation through
+ * a FlipAnimationClock driven by the replay and draws the pager. Each frame is recorded.
+ * Frames are drawn even when nothing was invalidated, so idle frames cost more than on a device.
+ * Robolectric's invalidate() and VelocityTracker allocate where the framework doesn't, their cost
+ * is measured once and taken off the bytes of every frame.
+ *
+ * @author Yalantis
+ */
+class GestureReplay {
+    static final long FRAME_MS = 16;
+    // Settling flip over all pages takes far less than this
+    private static final int MAX_SETTLE_FRAMES = 500;
+    private static final int CALIBRATION_RUNS = 2000;
+    // Size of VelocityTracker's pool of recycled trackers
+    private static final int VELOCITY_TRACKER_POOL_SIZE = 2;
+
+    final FlipViewPager pager;
+    private final CountingPager countingPager;
+    private final ManualFrameSource frameSource = new ManualFrameSource();
+    private final FlipAnimationClock clock = new FlipAnimationClock(frameSource);
+    private final Canvas canvas;
+    private final long counterOverhead;
+    private final long invalidateBytes;
+    private final long trackingBytes;
+    private int binds;
+    private int overFlips;
+    // Uptime of the replay in millis, starts where Robolectric's clock is
+    private long now;
+
+    /**
+     * Attaches a pager with given number of plain pages to the activity and shows given page.
+     */
+    GestureReplay(Activity activity, int width, int height, int pages, int page) {
+        FrameLayout parent = new FrameLayout(activity);
+        pager = countingPager = new CountingPager(activity);
+        parent.addView(pager, new FrameLayout.LayoutParams(width, height));
+        activity.setContentView(parent);
+        pager.setAnimationClock(clock);
+        pager.setOnFlipMetricsListener(new CountingMetricsListener());
+        pager.setAdapter(new PlainPagesAdapter(activity, pages), page, 0, pages);
+        parent.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+        parent.layout(0, 0, width, height);
+        canvas = new Canvas(Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888));
+        now = SystemClock.uptimeMillis();
+        long start = Allocations.allocatedBytes();
+        counterOverhead = Allocations.allocatedBytes() - start;
+        invalidateBytes = Allocations.perRun(new Runnable() {
+            @Override
+            public void run() {
+                pager.invalidate();
+            }
+        }, CALIBRATION_RUNS);
+        final VelocityTracker tracker = VelocityTracker.obtain();
+        final MotionEvent event = MotionEvent.obtain(now, now, MotionEvent.ACTION_MOVE, 0, 0, 0);
+        trackingBytes = Allocations.perRun(new Runnable() {
+            @Override
+            public void run() {
+                tracker.addMovement(event);
+            }
+        }, CALIBRATION_RUNS);
+    }
+
+    List<Frame> replay(Gesture gesture) {
+        return replay(gesture.obtainEvents(now + FRAME_MS));
+    }
+
+    /**
+     * Delivers recorded or synthetic events when the frame reaches their event time, then keeps
+     * stepping frames until the pager has settled.
+     *
+     * @return frames from the first event until the flip settled
+     */
+    List<Frame> replay(List<MotionEvent> events) {
+        List<Frame> frames = new ArrayList<>();
+        takePooledVelocityTrackers();
+        long startTime = now;
+        int next = 0;
+        int settleFrames = 0;
+        while (next < events.size() || frameSource.pending || pager.getFlipState() != FlipViewPager.FLIP_STATE_IDLE) {
+            if (next == events.size() && ++settleFrames > MAX_SETTLE_FRAMES)
+                fail("Pager didn't settle " + MAX_SETTLE_FRAMES + " frames after the gesture");
+            now += FRAME_MS;
+            binds = 0;
+            overFlips = 0;
+            countingPager.invalidates = 0;
+            int touchEvents = 0;
+            long bytesStart = Allocations.allocatedBytes();
+            while (next < events.size() && events.get(next).getEventTime() <= now) {
+                pager.dispatchTouchEvent(events.get(next++));
+                touchEvents++;
+            }
+            if (frameSource.pending) {
+                frameSource.pending = false;
+                clock.doFrame(now * 1000000L);
+            }
+            long bytes = Allocations.allocatedBytes() - bytesStart - counterOverhead
+                    - countingPager.invalidates * invalidateBytes - touchEvents * trackingBytes;
+
+            boolean snapshot = hasSnapshot();
+            long drawBytesStart = Allocations.allocatedBytes();
+            long drawStart = System.nanoTime();
+            pager.dispatchDraw(canvas);
+            long drawNanos = System.nanoTime() - drawStart;
+            long drawBytes = Allocations.allocatedBytes() - drawBytesStart - counterOverhead;
+            if (hasSnapshot() != snapshot)
+                fail("Snapshot layer switched while drawing at " + (now - startTime) + " ms");
+
+            frames.add(new Frame(now - startTime, pager.getFlipDistance(), pager.getCurrentPageIndex(),
+                    pager.getFlipState(), binds, overFlips, Math.max(bytes, 0), drawNanos, Math.max(drawBytes, 0), snapshot));
+        }
+        return frames;
+    }
+
+    private boolean hasSnapshot() {
+        PageView page = (PageView) pager.getPageView(pager.getCurrentPageIndex());
+        return page != null && page.layerType != View.LAYER_TYPE_NONE;
+    }
+
+    // Robolectric's VelocityTracker reports no velocity once recycled, so the pager has to get new ones
+    private static void takePooledVelocityTrackers() {
+        for (int i = 0; i < VELOCITY_TRACKER_POOL_SIZE; i++)
+            VelocityTracker.obtain();
+    }
+
+    /**
+     * State of the pager after one frame.
+     */
+    static class Frame {
+        // Since the replay started
+        final long timeMs;
+        final float flipDistance;
+        final int page;
+        final int flipState;
+        // Pages bound through the adapter
+        final int binds;
+        final int overFlips;
+        // Allocated by touch handling and the animation step, without Robolectric's own allocations
+        final long bytes;
+        final long drawNanos;
+        final long drawBytes;
+        // Current page was drawn from a layer
+        final boolean snapshot;
+
+        Frame(long timeMs, float flipDistance, int page, int flipState, int binds, int overFlips,
+              long bytes, long drawNanos, long drawBytes, boolean snapshot) {
+            this.timeMs = timeMs;
+            this.flipDistance = flipDistance;
+            this.page = page;
+            this.flipState = flipState;
+            this.binds = binds;
+            this.overFlips = overFlips;
+            this.bytes = bytes;
+            this.drawNanos = drawNanos;
+            this.drawBytes = drawBytes;
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public String toString() {
+            return timeMs + " ms: distance " + flipDistance + ", page " + page + ", state " + flipState
+                    + ", binds " + binds + ", " + bytes + " B, draw " + drawNanos / 1000 + " us " + drawBytes + " B"
+                    + (snapshot ? ", snapshot" : "");
+        }
+    }
+
+    private static class CountingPager extends FlipViewPager {
+        int invalidates;
+
+        CountingPager(Activity activity) {
+            super(activity, null);
+        }
+
+        @Override
+        public void invalidate() {
+            invalidates++;
+            super.invalidate();
+        }
+    }
+
+    // Frames are asked for by the animation and stepped by the replay
+    private static class ManualFrameSource implements FlipAnimationClock.FrameSource {
+        boolean pending;
+
+        @Override
+        public void postFrame() {
+            pending = true;
+        }
+    }
+
+    private class CountingMetricsListener implements FlipViewPager.OnFlipMetricsListener {
+        @Override
+        public void onFrameDrawn(FlipViewPager view, long drawNanos) {
+        }
+
+        @Override
+        public void onFirstFrame(FlipViewPager view, long latencyNanos) {
+        }
+
+        @Override
+        public void onTouchResponse(FlipViewPager view, long latencyNanos) {
+        }
+
+        @Override
+        public void onFlipCompleted(FlipViewPager view, int page, long durationNanos) {
+        }
+
+        @Override
+        public void onPageBound(FlipViewPager view, int page, long bindNanos) {
+            binds++;
+        }
+
+        @Override
+        public void onOverFlip(FlipViewPager view, float overFlipDistance) {
+            overFlips++;
+        }
+    }
+
+    private static class PlainPagesAdapter extends BaseAdapter {
+        private final Activity activity;
+        private final int pages;
+
+        PlainPagesAdapter(Activity activity, int pages) {
+            this.activity = activity;
+            this.pages = pages;
+        }
+
+        @Override
+        public int getCount() {
+            return pages;
+        }
+
+        @Override
+        public Object getItem(int position) {
+            return position;
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return position;
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            // Robolectric's TextView.setText() slows down with every call, so pages are plain views
+            return convertView != null ? convertView : new PageView(activity);
+        }
+    }
+
+    // Robolectric's View.getLayerType() stays LAYER_TYPE_NONE, so the requested type is kept here
+    private static class PageView extends View {
+        int layerType = LAYER_TYPE_NONE;
+
+        PageView(Activity activity) {
+            super(activity);
+        }
+
+        @Override
+        public void setLayerType(int layerType, Paint paint) {
+            this.layerType = layerType;
+            super.setLayerType(layerType, paint);
+        }
+    }
+}
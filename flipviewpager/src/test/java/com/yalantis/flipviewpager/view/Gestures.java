@@ -0,0 +1,66 @@
+package com.yalantis.flipviewpager.view;
+
+/**
+ * Standard gestures over a pager of given size. Distances are in pixels, negative ones go left,
+ * which flips towards the next page.
+ *
+ * @author Yalantis
+ */
+final class Gestures {
+    private Gestures() {
+    }
+
+    /**
+     * Drags over given distance in a second and holds still before lifting, so nothing is flung.
+     */
+    static Gesture slowDrag(int width, int height, float dx) {
+        return new Gesture("slow drag " + dx)
+                .down(startX(width, dx), height / 2)
+                .drag(dx, 1000)
+                .hold(200)
+                .up();
+    }
+
+    /**
+     * Short quick swipe released while moving.
+     */
+    static Gesture fastFling(int width, int height, float dx) {
+        return new Gesture("fast fling " + dx)
+                .down(startX(width, dx), height / 2)
+                .drag(dx, 80)
+                .up();
+    }
+
+    /**
+     * First finger drags, second finger touches down and continues the drag after the first
+     * is lifted, then holds still.
+     */
+    static Gesture multiPointer(int width, int height, float dx) {
+        float x = startX(width, dx);
+        return new Gesture("multi-pointer " + dx)
+                .down(x, height / 3)
+                .drag(dx / 2, 300)
+                .pointerDown(x, height * 2 / 3)
+                .drag(dx / 4, 150)
+                .pointerUp(0)
+                .drag(dx / 4, 150)
+                .hold(200)
+                .up();
+    }
+
+    /**
+     * Drags past the first or last page over given distance.
+     */
+    static Gesture overFlip(int width, int height, float dx) {
+        return new Gesture("over-flip " + dx)
+                .down(startX(width, dx), height / 2)
+                .drag(dx, 500)
+                .hold(200)
+                .up();
+    }
+
+    // Drags start near the edge they move away from, so they stay on the pager
+    private static float startX(int width, float dx) {
+        return dx < 0 ? width - 10 : 10;
+    }
+}
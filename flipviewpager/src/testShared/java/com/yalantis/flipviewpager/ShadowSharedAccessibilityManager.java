@@ -0,0 +1,31 @@
+package com.yalantis.flipviewpager;
+
+import android.content.Context;
+import android.view.accessibility.AccessibilityManager;
+
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowAccessibilityManager;
+
+/**
+ * Robolectric creates an AccessibilityManager, registering new observers, every time a view
+ * reports an accessibility change, so adding views gets slower with every call and allocation tests
+ * and benchmarks would measure Robolectric. One manager per context is shared instead, as on a device.
+ * Shared with tests of the benchmark module.
+ *
+ * @author Yalantis
+ */
+@Implements(AccessibilityManager.class)
+public class ShadowSharedAccessibilityManager extends ShadowAccessibilityManager {
+    private static Context context;
+    private static AccessibilityManager instance;
+
+    @Implementation
+    public static AccessibilityManager getInstance(Context context) throws Exception {
+        if (instance == null || ShadowSharedAccessibilityManager.context != context) {
+            ShadowSharedAccessibilityManager.context = context;
+            instance = ShadowAccessibilityManager.getInstance(context);
+        }
+        return instance;
+    }
+}